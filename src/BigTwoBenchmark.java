@@ -0,0 +1,415 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.swing.ImageIcon;
+
+/**
+ * This class measures the hot paths of the game: creating and shuffling decks, sorting hands, classifying
+ * five-card hands, comparing hands, playing whole games, encoding messages in both codecs and painting the cards
+ * of the table. Each benchmark is
+ * run for a warm-up period and then for a measurement period on the calling thread, and the report gives its
+ * throughput and the number of bytes it allocates per operation, so that a change making a path slower or
+ * allocating more shows up in the numbers. The size of a few messages in each codec is reported as well.
+ * <p>
+ * The harness has no dependency: allocation is read from the per-thread counter of the JVM, and the results of
+ * the operations are folded into a field so that the JIT compiler cannot remove them.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class BigTwoBenchmark {
+
+	private final long warmupNanos; // The time each benchmark runs before it is measured
+	private final long measureNanos; // The time each benchmark is measured for
+	private final Random random = new Random(2396); // The source of the inputs, fixed so runs are comparable
+	private long sink; // The folded results of the operations
+
+	/**
+	 * An interface for a benchmark, i.e. one operation which can be repeated.
+	 */
+	private interface Benchmark {
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return a value depending on the result of the operation
+		 * @throws Exception
+		 *             if the operation fails
+		 */
+		public long run() throws Exception;
+	}
+
+	/**
+	 * Constructor of BigTwoBenchmark class.
+	 *
+	 * @param warmupMillis
+	 * 				The time each benchmark runs before it is measured, in milliseconds.
+	 *
+	 * @param measureMillis
+	 * 				The time each benchmark is measured for, in milliseconds.
+	 */
+	public BigTwoBenchmark(long warmupMillis, long measureMillis) {
+		this.warmupNanos = warmupMillis * 1000000L;
+		this.measureNanos = measureMillis * 1000000L;
+	}
+
+	/**
+	 * Method to run all the benchmarks and print the report to the console.
+	 *
+	 * @throws Exception
+	 * 				If a benchmark fails.
+	 */
+	public void runAll() throws Exception {
+		System.out.println(String.format("%-32s %16s %14s", "Benchmark", "ops/s", "bytes/op"));
+
+		measure("deck.createAndShuffle", new Benchmark() {
+			public long run() {
+				BigTwoDeck deck = new BigTwoDeck();
+				deck.shuffle(random);
+				return deck.getMask();
+			}
+		});
+
+		final BigTwoDeck deck = new BigTwoDeck();
+		final CardList hand = new CardList();
+		measure("hand.sort", new Benchmark() {
+			public long run() {
+				deck.shuffle(random);
+				hand.removeAllCards();
+				for (int i = 0; i < BigTwoState.CARDS_PER_PLAYER; i++) {
+					hand.addCard(deck.getCard(i));
+				}
+				hand.sort();
+				return hand.getCard(0).hashCode();
+			}
+		});
+
+		final long[] masks = new long[4096];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = randomMask(5);
+		}
+		measure("hand.classify", new Benchmark() {
+			private int i = 0;
+
+			public long run() {
+				return HandClassifier.classify(masks[i++ & (masks.length - 1)]);
+			}
+		});
+
+		final CardGamePlayer player = new CardGamePlayer("Benchmark");
+		final Hand[] hands = new Hand[1024];
+		for (int i = 0; i < hands.length;) {
+			long mask = randomMask(5);
+			int code = HandClassifier.classify(mask);
+			if (code != HandClassifier.INVALID) {
+				CardList cards = new CardList();
+				for (int j = 0; j < CardSet.NUM_OF_CARDS; j++) {
+					if ((mask & (1L << j)) != 0) {
+						cards.addCard(BigTwoCard.fromOrdinal(j));
+					}
+				}
+				hands[i++] = HandClassifier.newHand(code, player, cards);
+			}
+		}
+		measure("hand.beats", new Benchmark() {
+			private int i = 0;
+
+			public long run() {
+				i++;
+				return hands[i & (hands.length - 1)].beats(hands[(i * 7) & (hands.length - 1)]) ? 1 : 0;
+			}
+		});
+
+		final BigTwoStrategy[] strategies = { BigTwoStrategy.LOWEST, BigTwoStrategy.RANDOM,
+				BigTwoStrategy.RANDOM, BigTwoStrategy.RANDOM };
+		final BigTwoSimulator simulator = new BigTwoSimulator(strategies, 1);
+		final BigTwoState state = new BigTwoState();
+		final MoveGenerator moves = new MoveGenerator();
+		final SimulationStats stats = new SimulationStats();
+		measure("game.simulate", new Benchmark() {
+			public long run() {
+				simulator.playGame(deck, state, moves, random, stats);
+				return state.getWinner();
+			}
+		});
+
+		final BigTwoDeck startDeck = new BigTwoDeck();
+		startDeck.shuffle(random);
+		final CardGameMessage start = new CardGameMessage(CardGameMessage.START, -1, startDeck);
+		final CardGameMessage move = new CardGameMessage(CardGameMessage.MOVE, 2, new int[] { 0, 3, 5, 8, 12 });
+		final CardGameMessage chat = new CardGameMessage(CardGameMessage.MSG, 1,
+				"Player 2 (/127.0.0.1:52114): good game!");
+		measure("message.start.roundTrip", new Benchmark() {
+			public long run() throws Exception {
+				return roundTrip(start);
+			}
+		});
+		measure("message.start.binaryRoundTrip", new Benchmark() {
+			public long run() throws Exception {
+				return binaryRoundTrip(start);
+			}
+		});
+		measure("message.start.broadcast", new Benchmark() {
+			public long run() throws Exception {
+				// the frames four players of a room get, the way a room broadcasts them
+				OutboundMessage outbound = new OutboundMessage(start);
+				long bytes = 0;
+				for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+					bytes += outbound.getFrame(false).remaining();
+				}
+				return bytes;
+			}
+		});
+		measure("message.move.roundTrip", new Benchmark() {
+			public long run() throws Exception {
+				return roundTrip(move);
+			}
+		});
+		measure("message.move.binaryRoundTrip", new Benchmark() {
+			public long run() throws Exception {
+				return binaryRoundTrip(move);
+			}
+		});
+		measure("message.msg.roundTrip", new Benchmark() {
+			public long run() throws Exception {
+				return roundTrip(chat);
+			}
+		});
+		measure("message.msg.binaryRoundTrip", new Benchmark() {
+			public long run() throws Exception {
+				return binaryRoundTrip(chat);
+			}
+		});
+
+		measurePainting();
+
+		System.out.println();
+		System.out.println(String.format("%-32s %16s %14s", "Message", "serialized", "binary"));
+		printSizes("START", start);
+		printSizes("MOVE", move);
+		printSizes("MSG", chat);
+
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Method to measure painting the 52 cards of the end-of-game view of the table, on a panel of the default
+	 * size, by scaling the images on every paint as the table used to and by copying them from a CardImageAtlas.
+	 * The images are read from the working directory; the benchmarks are skipped if they are not there.
+	 *
+	 * @throws Exception
+	 * 				If a benchmark fails.
+	 */
+	private void measurePainting() throws Exception {
+		final Image background = new ImageIcon("background.jpg").getImage();
+		if (background.getWidth(null) <= 0) {
+			System.out.println("table.paint.*: no images in the working directory, skipped");
+			return;
+		}
+		final int width = 880;
+		final int height = 640;
+		final BigTwoDeck paintDeck = new BigTwoDeck();
+		final Image[] faces = new Image[paintDeck.size()];
+		final String[] suitFiles = { "d.jpg", "c.jpg", "h.jpg", "s.jpg" };
+		for (int i = 0; i < faces.length; i++) {
+			Card card = paintDeck.getCard(i);
+			faces[i] = new ImageIcon((card.getRank() + 1) + suitFiles[card.getSuit()]).getImage();
+		}
+		final BufferedImage panel = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g = panel.createGraphics();
+
+		measure("table.paint.scaled", new Benchmark() {
+			public long run() {
+				g.drawImage(background, 0, 0, width, height, null);
+				for (int i = 0; i < faces.length; i++) {
+					g.drawImage(faces[i], (i % 13 + 3) * width / 18, height * (i / 13) / 5 + 30, height / 9,
+							height / 7, null);
+				}
+				return panel.getRGB(width / 2, height / 2);
+			}
+		});
+
+		final CardImageAtlas atlas = new CardImageAtlas();
+		measure("table.paint.atlas", new Benchmark() {
+			public long run() {
+				atlas.validate(width, height, null);
+				atlas.drawBackground(g);
+				for (int i = 0; i < faces.length; i++) {
+					atlas.drawCard(g, paintDeck.getCard(i), (i % 13 + 3) * width / 18, height * (i / 13) / 5 + 30);
+				}
+				return panel.getRGB(width / 2, height / 2);
+			}
+		});
+		g.dispose();
+	}
+
+	/**
+	 * Method to warm up and measure one benchmark and print its line of the report.
+	 *
+	 * @param name
+	 * 				The name of the benchmark.
+	 *
+	 * @param benchmark
+	 * 				The operation to be measured.
+	 *
+	 * @throws Exception
+	 * 				If the operation fails.
+	 */
+	private void measure(String name, Benchmark benchmark) throws Exception {
+		loop(benchmark, warmupNanos);
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		long ops = loop(benchmark, measureNanos);
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+		System.out.println(String.format("%-32s %16.1f %14.1f", name, ops * 1e9 / elapsed,
+				allocated < 0 ? Double.NaN : (double) allocated / ops));
+	}
+
+	/**
+	 * Method to repeat an operation for some time. The clock is read once every 256 operations so that reading
+	 * it does not dominate the short operations.
+	 *
+	 * @param benchmark
+	 * 				The operation to be repeated.
+	 *
+	 * @param nanos
+	 * 				The time to repeat it for.
+	 *
+	 * @return
+	 * 			The number of times the operation was run.
+	 *
+	 * @throws Exception
+	 * 				If the operation fails.
+	 */
+	private long loop(Benchmark benchmark, long nanos) throws Exception {
+		long end = System.nanoTime() + nanos;
+		long ops = 0;
+		long result = 0;
+		do {
+			for (int i = 0; i < 256; i++) {
+				result += benchmark.run();
+			}
+			ops += 256;
+		} while (System.nanoTime() < end);
+		sink += result;
+		return ops;
+	}
+
+	/**
+	 * Method to serialize a message the way a client or the server sends it and read it back.
+	 *
+	 * @param message
+	 * 				The message to be sent.
+	 *
+	 * @return
+	 * 			The number of bytes of the serialized message.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be serialized.
+	 *
+	 * @throws ClassNotFoundException
+	 * 				If the message cannot be deserialized.
+	 */
+	private static long roundTrip(CardGameMessage message) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(message);
+		oos.flush();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		ois.readObject();
+		return bytes.size();
+	}
+
+	/**
+	 * Method to encode a message by BinaryMessageCodec and decode it back.
+	 *
+	 * @param message
+	 * 				The message to be sent.
+	 *
+	 * @return
+	 * 			The number of bytes of the encoded message.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be encoded or decoded.
+	 */
+	private static long binaryRoundTrip(CardGameMessage message) throws IOException {
+		byte[] payload = BinaryMessageCodec.encode(message);
+		BinaryMessageCodec.decode(ByteBuffer.wrap(payload));
+		return payload.length;
+	}
+
+	/**
+	 * Method to print the number of bytes a message takes on the wire in each codec, frame header included.
+	 *
+	 * @param name
+	 * 				The name of the message.
+	 *
+	 * @param message
+	 * 				The message.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be encoded.
+	 */
+	private static void printSizes(String name, CardGameMessage message) throws IOException {
+		System.out.println(String.format("%-32s %16d %14d", name, MessageFrames.encode(message, false).remaining(),
+				MessageFrames.encode(message, true).remaining()));
+	}
+
+	/**
+	 * Method to create a random set of distinct cards.
+	 *
+	 * @param size
+	 * 				The number of cards.
+	 *
+	 * @return
+	 * 			The mask of the cards.
+	 */
+	private long randomMask(int size) {
+		long mask = 0L;
+		while (Long.bitCount(mask) < size) {
+			mask |= 1L << random.nextInt(CardSet.NUM_OF_CARDS);
+		}
+		return mask;
+	}
+
+	/**
+	 * Method to read the number of bytes allocated by the calling thread so far.
+	 *
+	 * @return
+	 * 			The number of bytes, or -1 if the JVM does not count them.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * main() method for running the benchmarks.
+	 *
+	 * @param args
+	 * 				The warm-up time and the measurement time of each benchmark in milliseconds, 1000 and 3000 by
+	 * 				default.
+	 *
+	 * @throws Exception
+	 * 				If a benchmark fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		long warmupMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+		long measureMillis = args.length > 1 ? Long.parseLong(args[1]) : 3000;
+		new BigTwoBenchmark(warmupMillis, measureMillis).runAll();
+	}
+}
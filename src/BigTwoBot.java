@@ -0,0 +1,548 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is a headless client of the Big Two server, which plays by itself with a BigTwoStrategy instead of a
+ * table, for load-testing the server. It speaks the same protocols as BigTwoClient: it joins, gets ready, plays
+ * its turns and gets ready again after every game, until it is closed.
+ * <p>
+ * The bot measures the latency of every MOVE message it receives, its own included, from the time its sender
+ * sent it: the bots of a driver share a map from their names to themselves, and a bot sends a move only after
+ * the other players of the room have received its previous one, so the time it sent its last move is the time
+ * it sent the move being received. The server broadcasts the MSG messages of a player back to the player too,
+ * and a chat message of the bot carries the time it was sent.
+ * <p>
+ * The bot reads on a task of the executor it is given, so that a driver can run thousands of bots on virtual
+ * threads, and waits for its think time on a shared scheduler rather than on a thread of its own.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class BigTwoBot implements CardGame, NetworkGame {
+
+	private static final String PING = "ping "; // The start of the chat messages whose round trip is measured
+	private static final int CONNECT_TIMEOUT = 10000; // The time to wait for a connection, in milliseconds
+
+	private final BigTwoState state = new BigTwoState(); // The state of the game, followed from the messages
+	private final MoveGenerator moves = new MoveGenerator(); // The generator of the legal moves of the bot
+	private final BigTwoStrategy strategy; // The strategy choosing the moves of the bot
+	private final Random random; // The source of randomness of the strategy
+	private final Executor readers; // The executor running the task reading the messages from the server
+	private final ScheduledExecutorService scheduler; // The scheduler delaying the moves by the think time
+	private final LoadTestStats stats = new LoadTestStats(); // The statistics of this bot
+	private int playerID = -1; // The index of the bot in its room
+	private String playerName; // The name of the bot
+	private String serverIP = "127.0.0.1"; // The IP address or host name of the server
+	private int serverPort = 2396; // The TCP port of the server
+	private boolean framed = false; // Whether the messages are sent in frames, for a server in non-blocking mode
+	private boolean binary = false; // Whether the frames are encoded by BinaryMessageCodec
+	private long thinkMillis = 0; // The time the bot waits before each of its moves
+	private int chatEvery = 0; // The number of moves of the bot between two chat messages, 0 for none
+	private Socket sock; // The connection to the server
+	private SerializationChannel oos; // The stream of the original protocol
+	private DataOutputStream framedOut; // The stream of the framed protocol
+	private volatile boolean closed = false; // Whether the bot has been closed
+	private int turn = 0; // The number of changes of the turn, to drop a move scheduled for an earlier turn
+	private boolean moveInFlight = false; // Whether a move of the bot is waiting to come back from the server
+	private long movesMade = 0; // The number of moves sent by the bot
+	private volatile long moveSentAt = -1; // The time the last move of the bot was sent, -1 if none
+	private Map<String, BigTwoBot> peers = null; // The bots of the driver by name, to time the moves of the others
+
+	/**
+	 * Constructor of BigTwoBot class. The bot connects to 127.0.0.1:2396 in the original protocol unless
+	 * configured otherwise before makeConnection.
+	 *
+	 * @param playerName
+	 * 				The name of the bot.
+	 *
+	 * @param strategy
+	 * 				The strategy choosing the moves of the bot.
+	 *
+	 * @param random
+	 * 				The source of randomness of the strategy, only used by this bot.
+	 *
+	 * @param readers
+	 * 				The executor running the task reading the messages from the server, one task per bot.
+	 *
+	 * @param scheduler
+	 * 				The scheduler delaying the moves by the think time, shared by the bots.
+	 */
+	public BigTwoBot(String playerName, BigTwoStrategy strategy, Random random, Executor readers,
+			ScheduledExecutorService scheduler) {
+		this.playerName = playerName;
+		this.strategy = strategy;
+		this.random = random;
+		this.readers = readers;
+		this.scheduler = scheduler;
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			state.getPlayerList().get(i).setName("");
+		}
+	}
+
+	/**
+	 * Setter of the protocol of the bot.
+	 *
+	 * @param framed
+	 * 				True to send every message in a frame of its own, as a server started in non-blocking mode
+	 * 				expects, or false for the original protocol of one ObjectOutputStream.
+	 *
+	 * @param binary
+	 * 				True to encode the frames by BinaryMessageCodec; only used with the framed protocol.
+	 */
+	public void setProtocol(boolean framed, boolean binary) {
+		this.framed = framed;
+		this.binary = binary;
+	}
+
+	/**
+	 * Setter of the pace of the bot.
+	 *
+	 * @param thinkMillis
+	 * 				The time the bot waits before each of its moves, in milliseconds.
+	 *
+	 * @param chatEvery
+	 * 				The number of moves of the bot between two chat messages, or 0 for no chat.
+	 */
+	public void setPace(long thinkMillis, int chatEvery) {
+		this.thinkMillis = thinkMillis;
+		this.chatEvery = chatEvery;
+	}
+
+	/**
+	 * Setter of the bots which may share a room with this one, so that the latencies of their moves are
+	 * measured too; without them the bot only measures its own moves.
+	 *
+	 * @param peers
+	 * 				The bots of the driver by name, this one included, shared by all of them.
+	 */
+	public synchronized void setPeers(Map<String, BigTwoBot> peers) {
+		this.peers = peers;
+	}
+
+	/**
+	 * Getter of the statistics of the bot.
+	 *
+	 * @return
+	 * 			The statistics, which keep changing while the bot plays.
+	 */
+	public LoadTestStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Method to connect to the server, start reading its messages, join the game and get ready. A connection
+	 * which fails is recorded as an error.
+	 *
+	 * @see NetworkGame#makeConnection()
+	 */
+	@Override
+	public synchronized void makeConnection() {
+		try {
+			sock = new Socket();
+			sock.setTcpNoDelay(true);
+			sock.connect(new InetSocketAddress(serverIP, serverPort), CONNECT_TIMEOUT);
+			if (framed) {
+				framedOut = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+			} else {
+				oos = new SerializationChannel(sock.getOutputStream());
+			}
+			final Socket socket = sock;
+			readers.execute(new Runnable() {
+				public void run() {
+					receiveMessages(socket);
+				}
+			});
+			sendMessage(new CardGameMessage(CardGameMessage.JOIN, -1, playerName));
+			sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+		} catch (IOException ex) {
+			stats.recordError();
+			close();
+		}
+	}
+
+	/**
+	 * Method to close the connection to the server; the bot stops playing.
+	 */
+	public void close() {
+		closed = true;
+		Socket socket;
+		synchronized (this) {
+			socket = sock;
+		}
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException ex) {
+				// already closed
+			}
+		}
+	}
+
+	/**
+	 * Method to read the messages from the server until the connection is closed.
+	 *
+	 * @param socket
+	 * 				The connection to the server.
+	 */
+	private void receiveMessages(Socket socket) {
+		try {
+			if (framed) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				while (!closed) {
+					parseMessage(MessageFrames.read(in));
+				}
+			} else {
+				ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+				while (!closed) {
+					parseMessage((CardGameMessage) in.readObject());
+				}
+			}
+		} catch (Exception ex) {
+			if (!closed) {
+				// the server closed the connection or sent something unreadable
+				stats.recordError();
+				close();
+			}
+		}
+	}
+
+	/**
+	 * Method to handle a message from the server, following the game and playing the turns of the bot.
+	 *
+	 * @param message
+	 * 				The message from the server.
+	 *
+	 * @see NetworkGame#parseMessage(GameMessage)
+	 */
+	@Override
+	public synchronized void parseMessage(GameMessage message) {
+		long now = System.nanoTime();
+		stats.recordReceived();
+		switch (message.getType()) {
+		case CardGameMessage.PLAYER_LIST:
+			playerID = message.getPlayerID();
+			String[] names = (String[]) message.getData();
+			for (int i = 0; i < names.length && i < BigTwoState.NUM_OF_PLAYERS; i++) {
+				state.getPlayerList().get(i).setName(names[i] == null ? "" : names[i]);
+			}
+			break;
+		case CardGameMessage.FULL:
+			// there is no seat for the bot, so it stops rather than waiting for the server to close the connection
+			stats.recordError();
+			close();
+			break;
+		case CardGameMessage.JOIN:
+			state.getPlayerList().get(message.getPlayerID()).setName((String) message.getData());
+			break;
+		case CardGameMessage.QUIT:
+			// the game stops when a player leaves, and the others get ready for the next one
+			state.getPlayerList().get(message.getPlayerID()).setName("");
+			state.reset();
+			turn++;
+			moveInFlight = false;
+			sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+			break;
+		case CardGameMessage.START:
+			start((Deck) message.getData());
+			break;
+		case CardGameMessage.MOVE:
+			BigTwoBot sender = message.getPlayerID() == playerID ? this : findPeer(message.getPlayerID());
+			long sentAt = sender == null ? -1 : sender.moveSentAt;
+			if (sentAt >= 0) {
+				stats.recordMoveLatency(now - sentAt);
+			}
+			if (message.getPlayerID() == playerID) {
+				moveInFlight = false;
+			}
+			checkMove(message.getPlayerID(), (int[]) message.getData());
+			break;
+		case CardGameMessage.MSG:
+			String text = (String) message.getData();
+			int ping = text == null ? -1 : text.lastIndexOf(PING);
+			if (message.getPlayerID() == playerID && ping >= 0) {
+				try {
+					stats.recordChatLatency(now - Long.parseLong(text.substring(ping + PING.length())));
+				} catch (NumberFormatException ex) {
+					// a chat message of the same player which is not a ping
+				}
+			}
+			break;
+		default:
+			// READY, SESSION and the rest do not change the game of a bot
+			break;
+		}
+	}
+
+	/**
+	 * Method to start a new game with the deck from the server, and to play if the bot moves first.
+	 *
+	 * @param deck
+	 * 				The shuffled deck.
+	 *
+	 * @see CardGame#start(Deck)
+	 */
+	@Override
+	public synchronized void start(Deck deck) {
+		state.start(deck);
+		turn++;
+		moveInFlight = false;
+		scheduleMove();
+	}
+
+	/**
+	 * Method to follow a move broadcast by the server, checked the way BigTwoClient checks it, and to play if it
+	 * is then the turn of the bot. The bot gets ready for the next game when the game ends.
+	 *
+	 * @param playerID
+	 * 				The player making the move.
+	 *
+	 * @param cardIdx
+	 * 				The indices of the cards played, or null for a pass.
+	 *
+	 * @see CardGame#checkMove(int, int[])
+	 */
+	@Override
+	public synchronized void checkMove(int playerID, int[] cardIdx) {
+		MoveResult result = BigTwoRules.checkMove(state, playerID, cardIdx);
+		if (result.isLegal()) {
+			state.makeMove(result);
+			turn++;
+		}
+		if (result.getStatus() == MoveResult.Status.GAME_OVER) {
+			stats.recordGame(state.getWinner() == this.playerID);
+			sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+		} else {
+			scheduleMove();
+		}
+	}
+
+	/**
+	 * Method to find the bot playing in a seat of the room.
+	 *
+	 * @param seat
+	 * 				The index of the player in the room.
+	 *
+	 * @return
+	 * 			The bot of that name among the peers, or null if the player is not one of them.
+	 */
+	private BigTwoBot findPeer(int seat) {
+		if (peers == null || seat < 0 || seat >= BigTwoState.NUM_OF_PLAYERS) {
+			return null;
+		}
+		return peers.get(state.getPlayerList().get(seat).getName());
+	}
+
+	/**
+	 * Method to play the turn of the bot after its think time, if it is the turn of the bot and no move of the
+	 * bot is on its way.
+	 */
+	private void scheduleMove() {
+		if (closed || moveInFlight || playerID < 0 || state.getCurrentIdx() != playerID || state.endOfGame()) {
+			return;
+		}
+		final int scheduledTurn = turn;
+		if (thinkMillis <= 0) {
+			playTurn(scheduledTurn);
+			return;
+		}
+		scheduler.schedule(new Runnable() {
+			public void run() {
+				playTurn(scheduledTurn);
+			}
+		}, thinkMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Method to choose and send the move of the bot, unless the turn has changed since it was scheduled.
+	 *
+	 * @param scheduledTurn
+	 * 				The turn for which the move was scheduled.
+	 */
+	private synchronized void playTurn(int scheduledTurn) {
+		if (closed || moveInFlight || scheduledTurn != turn || state.getCurrentIdx() != playerID) {
+			return;
+		}
+		moves.reset(state);
+		long move = strategy.chooseMove(state, moves, random);
+		makeMove(playerID, MoveGenerator.toCardIdx(state.getPlayerList().get(playerID).getCardsInHand(), move));
+		movesMade++;
+		if (chatEvery > 0 && movesMade % chatEvery == 0) {
+			sendMessage(new CardGameMessage(CardGameMessage.MSG, -1, PING + System.nanoTime()));
+			stats.recordChat();
+		}
+	}
+
+	/**
+	 * Method to send a move to the server, which broadcasts it to the players of the room.
+	 *
+	 * @param playerID
+	 * 				The player making the move, i.e. the bot.
+	 *
+	 * @param cardIdx
+	 * 				The indices of the cards played, or null for a pass.
+	 *
+	 * @see CardGame#makeMove(int, int[])
+	 */
+	@Override
+	public synchronized void makeMove(int playerID, int[] cardIdx) {
+		moveInFlight = true;
+		moveSentAt = System.nanoTime();
+		sendMessage(new CardGameMessage(CardGameMessage.MOVE, -1, cardIdx));
+		stats.recordMove();
+	}
+
+	/**
+	 * Method to send a message to the server. A message which cannot be sent closes the bot.
+	 *
+	 * @param message
+	 * 				The message to be sent.
+	 *
+	 * @see NetworkGame#sendMessage(GameMessage)
+	 */
+	@Override
+	public synchronized void sendMessage(GameMessage message) {
+		if (closed) {
+			return;
+		}
+		try {
+			if (framed) {
+				MessageFrames.write(framedOut, message, binary);
+			} else {
+				oos.writeObject(message);
+				oos.flush();
+			}
+		} catch (IOException ex) {
+			stats.recordError();
+			close();
+		}
+	}
+
+	/**
+	 * @see CardGame#getNumOfPlayers()
+	 */
+	@Override
+	public int getNumOfPlayers() {
+		return BigTwoState.NUM_OF_PLAYERS;
+	}
+
+	/**
+	 * The bot does not keep the deck.
+	 *
+	 * @return
+	 * 			null.
+	 *
+	 * @see CardGame#getDeck()
+	 */
+	@Override
+	public Deck getDeck() {
+		return null;
+	}
+
+	/**
+	 * @see CardGame#getPlayerList()
+	 */
+	@Override
+	public synchronized ArrayList<CardGamePlayer> getPlayerList() {
+		return state.getPlayerList();
+	}
+
+	/**
+	 * @see CardGame#getHandsOnTable()
+	 */
+	@Override
+	public synchronized ArrayList<Hand> getHandsOnTable() {
+		return state.getHandsOnTable();
+	}
+
+	/**
+	 * @see CardGame#getCurrentIdx()
+	 */
+	@Override
+	public synchronized int getCurrentIdx() {
+		return state.getCurrentIdx();
+	}
+
+	/**
+	 * @see CardGame#endOfGame()
+	 */
+	@Override
+	public synchronized boolean endOfGame() {
+		return state.endOfGame();
+	}
+
+	/**
+	 * @see NetworkGame#getPlayerID()
+	 */
+	@Override
+	public synchronized int getPlayerID() {
+		return playerID;
+	}
+
+	/**
+	 * @see NetworkGame#setPlayerID(int)
+	 */
+	@Override
+	public synchronized void setPlayerID(int playerID) {
+		this.playerID = playerID;
+	}
+
+	/**
+	 * @see NetworkGame#getPlayerName()
+	 */
+	@Override
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	/**
+	 * @see NetworkGame#setPlayerName(String)
+	 */
+	@Override
+	public void setPlayerName(String playerName) {
+		this.playerName = playerName;
+	}
+
+	/**
+	 * @see NetworkGame#getServerIP()
+	 */
+	@Override
+	public String getServerIP() {
+		return serverIP;
+	}
+
+	/**
+	 * @see NetworkGame#setServerIP(String)
+	 */
+	@Override
+	public void setServerIP(String serverIP) {
+		this.serverIP = serverIP;
+	}
+
+	/**
+	 * @see NetworkGame#getServerPort()
+	 */
+	@Override
+	public int getServerPort() {
+		return serverPort;
+	}
+
+	/**
+	 * @see NetworkGame#setServerPort(int)
+	 */
+	@Override
+	public void setServerPort(int serverPort) {
+		this.serverPort = serverPort;
+	}
+}
@@ -1,7 +1,12 @@
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+
 
 /**
  * This class models the card used in Big Two game, which is the subclass of Card class. This class override the
- * compareTo method for A and 2 are actually not in there normal position.
+ * compareTo method for A and 2 are actually not in there normal position. Each card carries its Big Two ordinal,
+ * which is its position from 0 (3 of Diamond) to 51 (2 of Spade), so that comparing two cards is comparing two
+ * integers.
  * 
  * @author Li Gengyu
  *
@@ -12,6 +17,24 @@ public class BigTwoCard extends Card {
 	 * This is a default serial version UID.
 	 */
 	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The shared instances of the 52 BigTwoCards, indexed by their ordinals.
+	 */
+	private static final BigTwoCard[] CARDS = new BigTwoCard[52];
+	
+	static {
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 13; j++) {
+				CARDS[ordinalOf(i, j)] = new BigTwoCard(i, j);
+			}
+		}
+	}
+	
+	/**
+	 * The Big Two ordinal of this card, 0 for the 3 of Diamond and 51 for the 2 of Spade.
+	 */
+	private final int ordinal;
 
 	/**
 	 * Constructor of BigTwoCard class, which simply use the super class's constructor.
@@ -24,12 +47,92 @@ public class BigTwoCard extends Card {
 	 */
 	public BigTwoCard(int suit, int rank) {
 		super(suit, rank);
+		ordinal = ordinalOf(suit, rank);
+	}
+	
+	/**
+	 * Method to compute the Big Two ordinal of a card, where the rank is shifted so that 3 is the lowest and 2
+	 * is the highest, and the suit breaks the tie.
+	 * 
+	 * @param suit
+	 * 				The suit of the card 0, 1, 2, 3
+	 * 
+	 * @param rank
+	 * 				The rank of the card 0 - 12, where 0 is A and 1 is 2
+	 * 
+	 * @return
+	 * 			An integer between 0 (3 of Diamond) and 51 (2 of Spade).
+	 */
+	public static int ordinalOf(int suit, int rank) {
+		return ((rank + 11) % 13) * 4 + suit;
+	}
+	
+	/**
+	 * Method to compute the Big Two ordinal of any card, without recomputing it for a BigTwoCard.
+	 * 
+	 * @param card
+	 * 				The card whose ordinal is wanted.
+	 * 
+	 * @return
+	 * 			An integer between 0 (3 of Diamond) and 51 (2 of Spade).
+	 */
+	public static int ordinalOf(Card card) {
+		if (card instanceof BigTwoCard) {
+			return ((BigTwoCard) card).ordinal;
+		}
+		return ordinalOf(card.getSuit(), card.getRank());
+	}
+	
+	/**
+	 * Static factory which returns the shared BigTwoCard of the given ordinal.
+	 * 
+	 * @param ordinal
+	 * 				An integer between 0 (3 of Diamond) and 51 (2 of Spade).
+	 * 
+	 * @return
+	 * 			The shared BigTwoCard object of the ordinal.
+	 */
+	public static BigTwoCard fromOrdinal(int ordinal) {
+		return CARDS[ordinal];
+	}
+	
+	/**
+	 * Getter of the Big Two ordinal of this card.
+	 * 
+	 * @return
+	 * 			An integer between 0 (3 of Diamond) and 51 (2 of Spade).
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+	
+	/**
+	 * Static factory of BigTwoCard class, which returns the shared instance of the card instead of creating a
+	 * new one. As BigTwoCard is immutable, decks and hands can all use the same 52 objects and compare them
+	 * by identity.
+	 * 
+	 * @param suit
+	 * 				The suit of the BigTwoCard 0, 1, 2, 3
+	 * 
+	 * @param rank
+	 * 				The rank of the BigTwoCard 0 - 12, where 0 is A and 1 is 2
+	 * 
+	 * @return
+	 * 			The shared BigTwoCard object of the suit and rank.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 				If the suit or the rank is out of range.
+	 */
+	public static BigTwoCard of(int suit, int rank) {
+		checkSuitAndRank(suit, rank);
+		return CARDS[ordinalOf(suit, rank)];
 	}
 	
 	/**
 	 * This method is an override method of compareTo method in Card class, which is designed to compare two 
 	 * BigTwoCard objects. Rank have the first priority, if ranks equal, higher suit means larger. Because the
-	 * abnormal position of A and 2, this function should be overridden.
+	 * abnormal position of A and 2, this function should be overridden. The order is exactly the order of the
+	 * ordinals, so the comparison is a single subtraction.
 	 * 
 	 * @param card
 	 * 				Another card which is about to be compared.
@@ -41,24 +144,27 @@ public class BigTwoCard extends Card {
 	 */
 	@Override
 	public int compareTo(Card card) {
-		int rankOfThis = getRank(), rankOfCard = card.getRank();
-		if (rankOfThis == 0 || rankOfThis == 1) {
-			rankOfThis += 13;
-		}
-		if (rankOfCard == 0 || rankOfCard == 1) {
-			rankOfCard += 13;
-		}
-		if (rankOfThis > rankOfCard) {
-			return 1;
-		} else if (rankOfThis < rankOfCard) {
-			return -1;
-		} else if (getSuit() > card.getSuit()) {
-			return 1;
-		} else if (getSuit() < card.getSuit()) {
-			return -1;
-		} else {
-			return 0;
+		return Integer.signum(ordinal - ordinalOf(card));
+	}
+	
+	/**
+	 * This method is called when a BigTwoCard is deserialized, for example from a START message, and replaces
+	 * the new object by the shared instance so that no extra cards are kept by the client.
+	 * 
+	 * @return
+	 * 			The shared BigTwoCard object of the same suit and rank.
+	 * 
+	 * @throws ObjectStreamException
+	 * 				If the suit or the rank in the stream is out of range.
+	 * 
+	 * @see Card#readResolve()
+	 */
+	@Override
+	protected Object readResolve() throws ObjectStreamException {
+		if (!isValid(suit, rank)) {
+			throw new InvalidObjectException("Invalid card: suit " + suit + ", rank " + rank);
 		}
+		return of(suit, rank);
 	}
 	
 }
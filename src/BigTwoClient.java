@@ -1,14 +1,25 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.Arrays;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 
 /**
  * This class is designed to model a Big Two game. In this class, whole game logic is implemented. And the client for one player
  * is modeled to connect to the Big Two server.
+ * <p>
+ * The client has two layers. The model, i.e. the state of the game and the names of the players, is changed
+ * by the thread reading the messages from the server. The view, i.e. the table, is only changed on the event
+ * dispatch thread. The reading thread never waits for the view: it queues the changes of the table and a
+ * snapshot of the model, and one task on the event dispatch thread applies everything queued so far, so a
+ * burst of messages costs one update of the table. The table draws the copy of the state held by the view
+ * (see getPlayerList, getHandsOnTable, getCurrentIdx and endOfGame), never the model itself.
  * 
  * @author Li Gengyu
  *
@@ -17,31 +28,95 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	
 	private int numOfPlayers; // An integer specifying the number of players.
 	private Deck deck; // A deck of cards.
-	private ArrayList<CardGamePlayer> playerList; // A list of players.
-	private ArrayList<Hand> handsOnTable; // A list of hands played on the table.
-	private int playerID; // An integer specifying the playerID (i.e., index) of the local player.
+	private BigTwoState state; // The state of the game, i.e. players, hands on table and current player
+	private ArrayList<CardGamePlayer> playerList; // A list of players, the same list as in the state.
+	private volatile int playerID; // An integer specifying the playerID (i.e., index) of the local player.
 	private String playerName; // A string specifying the name of the local player.
 	private String serverIP; // A string specifying the IP address of the game server.
 	private int serverPort; // An integer specifying the TCP port of the game server.
 	private Socket sock; // A socket connection to the game server.
-	private ObjectOutputStream oos; // An ObjectOutputStream for sending messages to the server.
-	private int currentIdx; // An integer specifying the index of the player for the current turn.
+	private SerializationChannel oos; // An ObjectOutputStream, reset periodically, for sending messages to the server.
+	private final boolean framed; // Whether the messages are sent in frames, for a server in non-blocking mode.
+	private DataOutputStream framedOut; // A stream for sending frames to the server in the framed protocol.
+	private final boolean binary; // Whether the frames are encoded by BinaryMessageCodec rather than serialized.
+	private final boolean tcpNoDelay; // Whether Nagle's algorithm is disabled on the socket.
 	private BigTwoTable table; // A Big Two table which builds the GUI for the game and handles all user actions
-	private boolean firstMove; // A boolean indicates if this is the first move
+	private volatile String sessionToken; // The token by which the seat can be taken back after losing the connection.
+	private long resumeStartedAt; // The time at which a RESUME message was sent, in nanoseconds.
+	private final BigTwoState viewState; // The copy of the state drawn on the table, only used on the event dispatch thread.
+	private final ArrayList<Runnable> viewUpdates = new ArrayList<Runnable>(); // The changes of the table waiting for the event dispatch thread, in order; also the lock of the fields below.
+	private byte[] viewSnapshot; // The latest snapshot of the state waiting for the event dispatch thread, or null.
+	private String[] viewNames; // The names of the players taken with that snapshot.
+	private int dirtyRows; // The rows of the table to be repainted, one bit per row (see BigTwoTable#repaintPlayer).
+	private boolean viewUpdateScheduled; // Whether a task applying the changes has been queued on the event dispatch thread.
+	
+	private static final int TABLE_ROW = 1 << 4; // The bit of the row showing the last hand on the table.
+	private static final int ALL_ROWS = 0x1F; // The bits of all the rows of the table.
+	
+	private static final long RECONNECT_INTERVAL = 1000; // The time between two attempts to reconnect, in milliseconds.
+	private static final long RECONNECT_PERIOD = 30000; // The time for which the client tries to reconnect, in milliseconds.
 	
 	/** 
-	 * This is the constructor of BigTwo, it create an object of playerList and handsOnTable and bigTwoTable,
-	 * this constructor also create four players (CardGameplayer object) to model the four players in this game.
-	 * Then these four players are added into playerList.
+	 * This is the constructor of BigTwo, it create an object of the game state and bigTwoTable, the game state
+	 * creates four players (CardGameplayer object) to model the four players in this game, whose names are
+	 * cleared until they join.
 	 * 
 	 */
 	public BigTwoClient() {
-		playerList = new ArrayList<CardGamePlayer>();
-		handsOnTable = new ArrayList<Hand>();
-		for (int i = 0; i < 4; i++) {
-			CardGamePlayer player = new CardGamePlayer();
-			player.setName("");
-			playerList.add(player);
+		this(false);
+	}
+
+	/**
+	 * This constructor creates a client which talks to the server in the specified protocol.
+	 * 
+	 * @param framed
+	 * 				True to send every message in a frame of its own, as a server started in non-blocking mode
+	 * 				expects (see MessageFrames), or false for the original protocol of one ObjectOutputStream.
+	 */
+	public BigTwoClient(boolean framed) {
+		this(framed, false);
+	}
+
+	/**
+	 * This constructor creates a client which talks to the server in the specified protocol and codec.
+	 * 
+	 * @param framed
+	 * 				True to send every message in a frame of its own, as a server started in non-blocking mode
+	 * 				expects (see MessageFrames), or false for the original protocol of one ObjectOutputStream.
+	 * 
+	 * @param binary
+	 * 				True to encode the frames by BinaryMessageCodec rather than serialize them; only used with the
+	 * 				framed protocol.
+	 */
+	public BigTwoClient(boolean framed, boolean binary) {
+		this(framed, binary, false);
+	}
+
+	/**
+	 * This constructor creates a client which talks to the server in the specified protocol and codec, and sets
+	 * whether its moves wait for Nagle's algorithm.
+	 * 
+	 * @param framed
+	 * 				True to send every message in a frame of its own, as a server started in non-blocking mode
+	 * 				expects (see MessageFrames), or false for the original protocol of one ObjectOutputStream.
+	 * 
+	 * @param binary
+	 * 				True to encode the frames by BinaryMessageCodec rather than serialize them; only used with the
+	 * 				framed protocol.
+	 * 
+	 * @param tcpNoDelay
+	 * 				True to set TCP_NODELAY on the socket, so that every message leaves at once.
+	 */
+	public BigTwoClient(boolean framed, boolean binary, boolean tcpNoDelay) {
+		this.framed = framed;
+		this.binary = binary;
+		this.tcpNoDelay = tcpNoDelay;
+		state = new BigTwoState();
+		viewState = new BigTwoState();
+		playerList = state.getPlayerList();
+		for (int i = 0; i < playerList.size(); i++) {
+			playerList.get(i).setName("");
+			viewState.getPlayerList().get(i).setName("");
 		}
 		table = new BigTwoTable(this);
 		makeConnection();
@@ -59,36 +134,39 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	}
 	
 	/**
-	 * Getter of the class to retrieve the player list in game (playerList).
+	 * Getter of the class to retrieve the player list in game (playerList), as shown on the table. It must be
+	 * called on the event dispatch thread.
 	 * 
 	 * @return
 	 * 			Return a CardGamePlayer ArrayList which store the 4 players in the game.
 	 */
 	@Override
 	public ArrayList<CardGamePlayer> getPlayerList() {
-		return playerList;
+		return viewState.getPlayerList();
 	}
 	
 	/**
-	 * Getter of the class to retrieve the played hands on table (handsOnTable).
+	 * Getter of the class to retrieve the played hands on table (handsOnTable), as shown on the table. Only the
+	 * last hand is kept. It must be called on the event dispatch thread.
 	 * 
 	 * @return
 	 * 			Return a Hand ArrayList which store all the hands that have been played on table.
 	 */
 	@Override
 	public ArrayList<Hand> getHandsOnTable() {
-		return handsOnTable;
+		return viewState.getHandsOnTable();
 	}
 	
 	/**
-	 * Getter of the class to retrieve the current index of player, i.e. which player is playing now (currentInx)
+	 * Getter of the class to retrieve the current index of player, i.e. which player is playing now (currentInx),
+	 * as shown on the table. It must be called on the event dispatch thread.
 	 * 
 	 * @return
 	 * 			Return an integer to show the current index of player
 	 */
 	@Override
 	public int getCurrentIdx() {
-		return currentIdx;
+		return viewState.getCurrentIdx();
 	}
 	
 	/**
@@ -100,45 +178,32 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	 */
 	@Override
 	public void start(Deck deck) {
-		for (int i = 0; i < 4; i++) {
-			playerList.get(i).getCardsInHand().removeAllCards();
-		}
-		table.reset();
-		int startingPos = 0;
-		for (int i = 0; i < 4; i++) {
-			for (int j = startingPos; j < startingPos + 13; j++) {
-				playerList.get(i).addCard(deck.getCard(j));
-			}
-			playerList.get(i).sortCardsInHand();
-			startingPos += 13;
-			if (playerList.get(i).getCardsInHand().contains(new Card(0, 2))) {
-				currentIdx = i;
-			}
-		}
+		state.start(deck);
 		
-		table.setActivePlayer(currentIdx);
-		firstMove = true;
-		table.repaint();
-		table.printMsg("Enjoy the big two game!!!\n");
-		table.printMsg("The star specifies the current player to make the move.\n");
-		table.printMsg(playerList.get(currentIdx).getName() + " starting!\n");
+		final int currentIdx = state.getCurrentIdx();
+		updateView(new Runnable() {
+			public void run() {
+				table.reset();
+				table.setActivePlayer(currentIdx);
+			}
+		});
+		repaintRows(ALL_ROWS);
+		printMsg("Enjoy the big two game!!!\n");
+		printMsg("The star specifies the current player to make the move.\n");
+		printMsg(playerList.get(currentIdx).getName() + " starting!\n");
 	}
 	
 	/**
 	 * To judge whether the game is over or not, when one player run out of cards, game is over, the currentIdx
-	 * player wins the game.
+	 * player wins the game. The game is the one shown on the table, so it must be called on the event dispatch
+	 * thread.
 	 * 
 	 * @return
 	 * 			Return a boolean value to show whether the game is over or not, true if over and vice versa.
 	 */
 	@Override
 	public boolean endOfGame() {
-		for (int i = 0; i < playerList.size(); i++) {
-			if (playerList.get(i).getNumOfCards() == 0) {
-				return true;
-			}
-		}
-		return false;
+		return viewState.endOfGame();
 	}
 	
 	/**
@@ -157,7 +222,7 @@ public class BigTwoClient implements CardGame, NetworkGame {
 			return false;
 		}
 		for (int i = 0; i < cardIdx.length; i++) {
-			if (cardIdx[i] < 0 || cardIdx[i] >= playerList.get(currentIdx).getCardsInHand().size()) {
+			if (cardIdx[i] < 0 || cardIdx[i] >= playerList.get(state.getCurrentIdx()).getCardsInHand().size()) {
 				return true;
 			}
 		}
@@ -173,13 +238,13 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	 */
 	public void printToTable(Hand cards) {
 		if (cards != null) {
-			table.printMsg("{" + cards.getType() + "} ");
+			printMsg("{" + cards.getHandType().getName() + "} ");
 			for (int i = 0; i < cards.size(); i++) {
 				String string = "[" + cards.getCard(i) + "] ";
-				table.printMsg(string);
+				printMsg(string);
 			}
 		} else {
-			table.printMsg("{pass}\n");
+			printMsg("{pass}\n");
 		}
 	}
 	
@@ -199,7 +264,8 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	/**
 	 * Method to check move by a given player with a given cards selected list. If the move is illegal,
 	 * print error message to the msgArea or else make the move. If it is end of game after a move, 
-	 * this method is also in charge of that. This method will do according to different card combinations.
+	 * this method is also in charge of that. The move is checked by BigTwoRules, which tells whether
+	 * it is legal and why not.
 	 * 
 	 * @param playerID
 	 * 					Player ID who is about to make move.
@@ -211,82 +277,35 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	 */
 	@Override
 	public void checkMove(int playerID, int[] cardIdx) {		
-		table.printMsg(playerList.get(playerID).getName() + "'s turn:\n");
-		if (firstMove) {
-			if (cardIdx == null || (cardIdx != null && composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)) == null) || outOfBound(cardIdx)) {
-				table.printMsg("Not a legal move! Try again!\n");
-			} else if (composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)) != null) {
-				printToTable(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-				table.printMsg("\n");
-				handsOnTable.add(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-				firstMove = false;
-				Arrays.sort(cardIdx);
-				for (int i = cardIdx.length - 1; i >= 0; i--) {
-					playerList.get(currentIdx).getCardsInHand().removeCard(cardIdx[i]);
-				}
-				currentIdx++;
-				currentIdx %= 4;
-				table.setActivePlayer(currentIdx);
-				table.resetSelected();
-				table.repaint();
-			}
+		printMsg(playerList.get(playerID).getName() + "'s turn:\n");
+		MoveResult result = BigTwoRules.checkMove(state, playerID, cardIdx);
+		if (result.getReason() == MoveResult.Reason.DOES_NOT_BEAT) {
+			printToTable(result.getHand());
+			printMsg("<=== Not a legal move! Try again!\n");
+		} else if (!result.isLegal()) {
+			printMsg("Not a legal move! Try again!\n");
 		} else {
-			if (handsOnTable.get(handsOnTable.size() - 1).getPlayer().equals(playerList.get(currentIdx))) {
-				if (cardIdx == null || (cardIdx != null && composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)) == null) || outOfBound(cardIdx)) {
-					table.printMsg("Not a legal move! Try again!\n");
-				} else if (composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)) != null) {
-					printToTable(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-					table.printMsg("\n");
-					handsOnTable.add(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-					Arrays.sort(cardIdx);
-					for (int i = cardIdx.length - 1; i >= 0; i--) {
-						playerList.get(currentIdx).getCardsInHand().removeCard(cardIdx[i]);
-					}
-					currentIdx++;
-					currentIdx %= 4;
-					table.setActivePlayer(currentIdx);
-					table.resetSelected();
-					table.repaint();
-				}
-			} else {
-				if (cardIdx != null && composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)) == null || outOfBound(cardIdx)) {
-					table.printMsg("Not a legal move! Try again!\n");
-				} else if (cardIdx == null) {
-					printToTable(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-					currentIdx++;
-					currentIdx %= 4;
-					table.setActivePlayer(currentIdx);
-					table.resetSelected();
-					table.repaint();
-					
-				} else if (!composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)).beats(handsOnTable.get(handsOnTable.size() - 1))) {
-					printToTable(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-					table.printMsg("<=== Not a legal move! Try again!\n");
-				} else if (composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)).beats(handsOnTable.get(handsOnTable.size() - 1))) {
-					printToTable(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-					table.printMsg("\n");
-					handsOnTable.add(composeHand(playerList.get(currentIdx), playerList.get(currentIdx).play(cardIdx)));
-					Arrays.sort(cardIdx);
-					for (int i = cardIdx.length - 1; i >= 0; i--) {
-						playerList.get(currentIdx).getCardsInHand().removeCard(cardIdx[i]);
-					}
-					currentIdx++;
-					currentIdx %= 4;
+			printToTable(result.getHand());
+			if (result.getHand() != null) {
+				printMsg("\n");
+			}
+			state.makeMove(result);
+			final int currentIdx = state.getCurrentIdx();
+			updateView(new Runnable() {
+				public void run() {
 					table.setActivePlayer(currentIdx);
 					table.resetSelected();
-					table.repaint();
 				}
-			}
+			});
+			// only the cards of the player, the star and the hand on the table change
+			repaintRows((1 << playerID) | (1 << currentIdx) | TABLE_ROW);
 		}
-		if (endOfGame()) {
+		if (result.getStatus() == MoveResult.Status.GAME_OVER) {
+			// every hand is shown at the end of the game
+			repaintRows(ALL_ROWS);
 			
 			String info = "Game ends!\n";
-			int winner = -1;
-			for (int i = 0; i < 4 && winner == -1; i++) {
-				if (playerList.get(i).getNumOfCards() == 0) {
-					winner = i;
-				}
-			}
+			int winner = state.getWinner();
 			for (int i = 0; i < 4; i++) {
 				info += playerList.get(i).getName();
 				if (i == winner) {
@@ -295,9 +314,20 @@ public class BigTwoClient implements CardGame, NetworkGame {
 					info += (" has " + playerList.get(i).getNumOfCards() + " cards in hand.\n");
 				}
 			}
-			JOptionPane.showMessageDialog(null, info);
-			table.disable();
-			sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+			// the dialog waits for the player on the event dispatch thread, while the messages keep being read;
+			// it is shown after the current changes, so the table is repainted behind it first
+			final String message = info;
+			updateView(new Runnable() {
+				public void run() {
+					table.disable();
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							JOptionPane.showMessageDialog(null, message);
+							sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+						}
+					});
+				}
+			});
 		}
 	}
 
@@ -321,17 +351,32 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	 * This is the main method of the whole project, which create a BigTwoClient object to start the
 	 * client.
 	 * @param args
-	 * 				Not used.
+	 * 				"--framed" to talk to a server started in non-blocking mode, "--binary" to do so with
+	 * 				frames encoded by BinaryMessageCodec, and "--nodelay" to disable Nagle's algorithm.
 	 */
 	public static void main(String[] args) {
-		BigTwoClient game = new BigTwoClient();	
+		boolean framed = false;
+		boolean binary = false;
+		boolean tcpNoDelay = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--framed")) {
+				framed = true;
+			} else if (args[i].equals("--binary")) {
+				framed = true;
+				binary = true;
+			} else if (args[i].equals("--nodelay")) {
+				tcpNoDelay = true;
+			}
+		}
+		BigTwoClient game = new BigTwoClient(framed, binary, tcpNoDelay);	
 	}
 	
 	/**
 	 * This method take a CardList and a CardGamePlayer objects as parameters, the method checks whether the
 	 * list of cards can be composed as a valid hand which is implemented in other subclasses of Hand class,
 	 * if no valid hand can be composed, this method return null to indicate that. This method is used to handle
-	 * the invalid input by players.
+	 * the invalid input by players. The cards are classified by HandClassifier on their mask, and only the
+	 * hand that matches is created.
 	 * 
 	 * @param player
 	 * 				The player who plays this turn.
@@ -347,45 +392,11 @@ public class BigTwoClient implements CardGame, NetworkGame {
 		if (cards == null || player == null) {
 			return null;		
 		}
-		if (cards.size() == 1) {
-			return new Single(player, cards);
-		} else if (cards.size() == 2) {
-			Hand hand = new Pair(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			} else {
-				return null;
-			}
-		} else if (cards.size() == 3) {
-			Hand hand = new Triple(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			} else {
-				return null;
-			}
-		} else if (cards.size() == 5) {
-			Hand hand = new StraightFlush(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new Quad(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new FullHouse(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new Flush(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-			hand = new Straight(player, cards);
-			if (hand.isValid()) {
-				return hand;
-			}
+		long mask = cards.getMask();
+		if (Long.bitCount(mask) != cards.size()) {
+			return null;
 		}
-		return null;
+		return HandClassifier.newHand(HandClassifier.classify(mask), player, cards);
 	}
 
 	/**
@@ -479,27 +490,101 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	 * @see NetworkGame#makeConnection()
 	 */
 	@Override
-	public synchronized void makeConnection() {
-		playerName = JOptionPane.showInputDialog("Please enter you name: ");
-		if (playerName != null) {
+	public void makeConnection() {
+		// the messages of a connection already open are still handled while the dialog is shown
+		String name = JOptionPane.showInputDialog("Please enter you name: ");
+		if (name != null) {
+			synchronized (this) {
+				playerName = name;
+				try {
+					serverIP = "127.0.0.1";
+					serverPort = 2396;
+					openConnection();
+					sendMessage(new CardGameMessage(CardGameMessage.JOIN, -1, playerName));
+					sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to open a connection to the server, with the streams of the protocol of this client, and to start
+	 * a thread receiving the messages from the server on it. The previous connection, if any, is closed.
+	 * 
+	 * @throws IOException
+	 * 				If the server cannot be reached.
+	 */
+	private synchronized void openConnection() throws IOException {
+		closeConnection();
+		sock = new Socket(serverIP, serverPort);
+		sock.setTcpNoDelay(tcpNoDelay);
+		if (framed) {
+			framedOut = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+		} else {
+			oos = new SerializationChannel(sock.getOutputStream());
+		}
+		Thread receiveMessage = new Thread(new ServerHandler(sock));
+		receiveMessage.start();
+	}
+
+	/**
+	 * Method to close the current connection to the server, if any. The thread reading from it stops with an
+	 * IOException and finds that the socket is no longer the current one.
+	 */
+	private synchronized void closeConnection() {
+		if (sock != null) {
 			try {
-				sock = new Socket("127.0.0.1", 2396);
-				serverIP = "127.0.0.1";
-				serverPort = 2396;
-				oos = new ObjectOutputStream(sock.getOutputStream());
-				Thread receiveMessage = new Thread(new ServerHandler());
-		 		receiveMessage.start();
-				sendMessage(new CardGameMessage(CardGameMessage.JOIN, -1, playerName));
-				sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
-			} catch (Exception ex) {
-				ex.printStackTrace();
+				sock.close();
+			} catch (IOException ex) {
+				// already closed
 			}
 		}
 	}
 
+	/**
+	 * Method to connect to the server again after losing the connection during a session, and to ask for the
+	 * seat of the session back. It tries every RECONNECT_INTERVAL for RECONNECT_PERIOD at most. The lost socket
+	 * is closed first: the connection may still be open if only reading from it failed, and the server keeps the
+	 * seat only once it sees the connection closed.
+	 * 
+	 * @param lost
+	 * 				The socket whose connection has been lost.
+	 */
+	private void reconnect(Socket lost) {
+		synchronized (this) {
+			if (lost != sock) {
+				return;
+			}
+			closeConnection();
+		}
+		printMsg("Lost the connection to the server, reconnecting...\n");
+		long deadline = System.currentTimeMillis() + RECONNECT_PERIOD;
+		while (System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(RECONNECT_INTERVAL);
+				synchronized (this) {
+					openConnection();
+					resumeStartedAt = System.nanoTime();
+					sendMessage(new CardGameMessage(CardGameMessage.RESUME, -1, sessionToken));
+				}
+				return;
+			} catch (InterruptedException ex) {
+				return;
+			} catch (IOException ex) {
+				// the server cannot be reached yet
+			}
+		}
+		printMsg("Cannot reconnect to the server.\n");
+	}
+
 	/**
 	 * This method handles all the incoming message sent by the server and do according to different 
-	 * message.
+	 * message. It runs on the thread reading the messages and changes the model only: the changes of the table
+	 * are queued for the event dispatch thread (see updateView), together with a snapshot of the model taken at
+	 * the end of the messages which change it. Only the parts of the table which a message changes are repainted,
+	 * so a chat message neither takes a snapshot nor repaints anything in the card panel.
 	 * @param message
 	 * 					The CardGameMessage the server sent to the client.
 	 * @see NetworkGame#parseMessage(GameMessage)
@@ -513,28 +598,92 @@ public class BigTwoClient implements CardGame, NetworkGame {
 					playerList.get(i).setName(((String[]) message.getData())[i]);
 				}
 			}
+			repaintRows(ALL_ROWS);
+			publishState();
 		} else if (message.getType() == CardGameMessage.FULL) {
-			table.printMsg("The server is now full, can't join the game! Wait a minute and try again.\n");
+			printMsg("The server is now full, can't join the game! Wait a minute and try again.\n");
+			// there is no seat to take back any more
+			sessionToken = null;
 		} else if (message.getType() == CardGameMessage.QUIT) {
 			playerList.get(message.getPlayerID()).setName("");
+			repaintRows(1 << message.getPlayerID());
 			stopTheGame();
+			publishState();
 			sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
 		} else if (message.getType() == CardGameMessage.JOIN) {
 			playerList.get(message.getPlayerID()).setName((String) message.getData());
+			repaintRows(1 << message.getPlayerID());
+			publishState();
 		} else if (message.getType() == CardGameMessage.READY) {
 			int id = message.getPlayerID();
-			table.printMsg(playerList.get(id).getName() + " is ready!\n");
-			table.disableTheConnectItem();
+			printMsg(playerList.get(id).getName() + " is ready!\n");
+			updateView(new Runnable() {
+				public void run() {
+					table.disableTheConnectItem();
+				}
+			});
 		} else if (message.getType() == CardGameMessage.START) {
-			table.enable();
 			start((BigTwoDeck) message.getData());
+			publishState();
 		} else if (message.getType() == CardGameMessage.MSG) {
-			table.printChatMsg((String) message.getData() + "\n");
+			printChatMsg((String) message.getData() + "\n");
 		} else if (message.getType() == CardGameMessage.MOVE) {
 			checkMove(message.getPlayerID(), (int[]) message.getData());
+			publishState();
+		} else if (message.getType() == CardGameMessage.SESSION) {
+			sessionToken = (String) message.getData();
+		} else if (message.getType() == CardGameMessage.SNAPSHOT) {
+			resumeGame(message.getPlayerID(), (byte[]) message.getData());
+			publishState();
 		}
 	}
 
+	/**
+	 * Method to resume the game from the snapshot sent by the server after reconnecting, or to join the game
+	 * again if the session could not be resumed.
+	 * 
+	 * @param playerID
+	 * 				The seat taken back, or -1 if the session could not be resumed.
+	 * 
+	 * @param snapshot
+	 * 				The snapshot of the game (see BigTwoSnapshot), or null.
+	 */
+	private void resumeGame(int playerID, byte[] snapshot) {
+		long millis = (System.nanoTime() - resumeStartedAt) / 1000000L;
+		if (playerID < 0 || snapshot == null) {
+			printMsg("The game could not be resumed, joining again.\n");
+			sessionToken = null;
+			state.reset();
+			updateView(new Runnable() {
+				public void run() {
+					table.reset();
+					table.disable();
+				}
+			});
+			repaintRows(ALL_ROWS);
+			sendMessage(new CardGameMessage(CardGameMessage.JOIN, -1, playerName));
+			sendMessage(new CardGameMessage(CardGameMessage.READY, -1, null));
+			return;
+		}
+		try {
+			BigTwoSnapshot.restore(snapshot, state);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			return;
+		}
+		this.playerID = playerID;
+		final int currentIdx = state.getCurrentIdx();
+		updateView(new Runnable() {
+			public void run() {
+				table.resetSelected();
+				table.setActivePlayer(currentIdx);
+				table.enable();
+			}
+		});
+		repaintRows(ALL_ROWS);
+		printMsg("Resumed the game in " + millis + " ms (" + snapshot.length + "-byte snapshot).\n");
+	}
+
 	/**
 	 * The method can send message to the server for the clients.
 	 * @param message
@@ -544,7 +693,13 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	@Override
 	public synchronized void sendMessage(GameMessage message) {
 		try {
-			oos.writeObject(message);
+			if (framed) {
+				MessageFrames.write(framedOut, message, binary);
+			} else {
+				oos.writeObject(message);
+				// sends the message in one write
+				oos.flush();
+			}
 		} catch (Exception ex) {
 			ex.printStackTrace();
 		}
@@ -562,14 +717,198 @@ public class BigTwoClient implements CardGame, NetworkGame {
 			}
 		}
 		if (checkPlayerSum == 1) {
-			for (int i = 0; i < 4; i++) {
-				playerList.get(i).getCardsInHand().removeAllCards();
+			state.reset();
+			updateView(new Runnable() {
+				public void run() {
+					table.reset();
+					table.clearChatMsg();
+					table.disable();
+				}
+			});
+			repaintRows(ALL_ROWS);
+		}
+	}
+	
+	/**
+	 * Method to queue a change of the table for the event dispatch thread, after the changes queued before.
+	 * 
+	 * @param update
+	 * 				The change, run on the event dispatch thread.
+	 */
+	private void updateView(Runnable update) {
+		synchronized (viewUpdates) {
+			viewUpdates.add(update);
+			scheduleViewUpdate();
+		}
+	}
+	
+	/**
+	 * Method to queue text for the message area of the table. Text queued in a row is appended at once.
+	 * 
+	 * @param msg
+	 * 				The text to be appended.
+	 */
+	private void printMsg(String msg) {
+		appendText(msg, false);
+	}
+	
+	/**
+	 * Method to queue text for the chat area of the table. Text queued in a row is appended at once.
+	 * 
+	 * @param msg
+	 * 				The text to be appended.
+	 */
+	private void printChatMsg(String msg) {
+		appendText(msg, true);
+	}
+	
+	/**
+	 * Method to queue text for one of the text areas of the table, merged with the text queued just before for
+	 * the same area.
+	 * 
+	 * @param msg
+	 * 				The text to be appended.
+	 * 
+	 * @param chat
+	 * 				True for the chat area, false for the message area.
+	 */
+	private void appendText(String msg, boolean chat) {
+		synchronized (viewUpdates) {
+			Runnable last = viewUpdates.isEmpty() ? null : viewUpdates.get(viewUpdates.size() - 1);
+			if (last instanceof TextUpdate && ((TextUpdate) last).chat == chat) {
+				((TextUpdate) last).text.append(msg);
+			} else {
+				viewUpdates.add(new TextUpdate(msg, chat));
+				scheduleViewUpdate();
+			}
+		}
+	}
+	
+	/**
+	 * Method to queue rows of the table to be repainted once the queued changes have been applied.
+	 * 
+	 * @param rows
+	 * 				The rows, one bit per row: bits 0 to 3 for the players and TABLE_ROW for the last hand.
+	 */
+	private void repaintRows(int rows) {
+		synchronized (viewUpdates) {
+			dirtyRows |= rows;
+			scheduleViewUpdate();
+		}
+	}
+	
+	/**
+	 * Method to queue a snapshot of the model for the table, replacing the one queued before if the event
+	 * dispatch thread has not taken it yet.
+	 */
+	private void publishState() {
+		byte[] snapshot = BigTwoSnapshot.encode(state);
+		String[] names = new String[playerList.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = playerList.get(i).getName();
+		}
+		synchronized (viewUpdates) {
+			viewSnapshot = snapshot;
+			viewNames = names;
+			scheduleViewUpdate();
+		}
+	}
+	
+	/**
+	 * Method to queue a task applying the changes on the event dispatch thread, unless one is already queued.
+	 * It must be called with the lock of viewUpdates held.
+	 */
+	private void scheduleViewUpdate() {
+		if (!viewUpdateScheduled) {
+			viewUpdateScheduled = true;
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					applyViewUpdates();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Method to apply everything queued for the table so far, on the event dispatch thread: the latest snapshot
+	 * of the model, then the changes in order, then the repaints.
+	 */
+	private void applyViewUpdates() {
+		byte[] snapshot;
+		String[] names;
+		Runnable[] updates;
+		int rows;
+		synchronized (viewUpdates) {
+			snapshot = viewSnapshot;
+			names = viewNames;
+			updates = viewUpdates.toArray(new Runnable[viewUpdates.size()]);
+			rows = dirtyRows;
+			viewSnapshot = null;
+			viewNames = null;
+			viewUpdates.clear();
+			dirtyRows = 0;
+			viewUpdateScheduled = false;
+		}
+		if (snapshot != null) {
+			for (int i = 0; i < names.length; i++) {
+				viewState.getPlayerList().get(i).setName(names[i]);
 			}
-			handsOnTable = new ArrayList<Hand>();
-			table.reset();
-			table.clearChatMsg();
+			try {
+				BigTwoSnapshot.restore(snapshot, viewState);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		}
+		for (Runnable update : updates) {
+			update.run();
+		}
+		if (rows == ALL_ROWS) {
 			table.repaint();
-			table.disable();
+		} else {
+			for (int i = 0; i < 4; i++) {
+				if ((rows & (1 << i)) != 0) {
+					table.repaintPlayer(i);
+				}
+			}
+			if ((rows & TABLE_ROW) != 0) {
+				table.repaintTable();
+			}
+		}
+	}
+	
+	/**
+	 * This class is a change of the table appending text to one of its text areas; the text queued in a row for
+	 * the same area is merged into one change.
+	 * 
+	 * @author Li Gengyu
+	 *
+	 */
+	private class TextUpdate implements Runnable {
+		
+		private final StringBuilder text; // The text to be appended.
+		private final boolean chat; // True for the chat area, false for the message area.
+		
+		/**
+		 * Constructor of TextUpdate class.
+		 * 
+		 * @param text
+		 * 				The first text to be appended.
+		 * 
+		 * @param chat
+		 * 				True for the chat area, false for the message area.
+		 */
+		TextUpdate(String text, boolean chat) {
+			this.text = new StringBuilder(text);
+			this.chat = chat;
+		}
+		
+		@Override
+		public void run() {
+			if (chat) {
+				table.printChatMsg(text.toString());
+			} else {
+				table.printMsg(text.toString());
+			}
 		}
 	}
 	
@@ -580,22 +919,72 @@ public class BigTwoClient implements CardGame, NetworkGame {
 	 */
 	class ServerHandler implements Runnable {
 		
+		private final Socket socket; // The socket from which the messages are read.
+		
+		/**
+		 * Constructor of ServerHandler class.
+		 * 
+		 * @param socket
+		 * 				The socket from which the messages are read.
+		 */
+		ServerHandler(Socket socket) {
+			this.socket = socket;
+		}
+		
 		/**
 		 * Method which will be called when the thread starts. When there is message from the server,
-		 * read it in.
+		 * read it in. Only an I/O error on the connection makes the client take its seat back; an object which
+		 * is not a message, or a message which cannot be handled, is skipped.
 		 * @see java.lang.Runnable#run()
 		 */
 		@Override
 		public void run() {
 			try {
-				ObjectInputStream os = new ObjectInputStream(sock.getInputStream());
-				CardGameMessage message = (CardGameMessage) os.readObject();
-				while (message != null) {
-					parseMessage(message);
-					table.repaint();
-					message = (CardGameMessage) os.readObject();
+				if (framed) {
+					DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+					while (true) {
+						handle(MessageFrames.read(in));
+					}
+				} else {
+					ObjectInputStream os = new ObjectInputStream(socket.getInputStream());
+					while (true) {
+						Object message;
+						try {
+							message = os.readObject();
+						} catch (ClassNotFoundException ex) {
+							ex.printStackTrace();
+							continue;
+						}
+						if (message == null) {
+							break;
+						}
+						if (message instanceof CardGameMessage) {
+							handle((CardGameMessage) message);
+						} else {
+							System.err.println("Not a message from the server: " + message.getClass().getName());
+						}
+					}
+				}
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				if (sessionToken != null) {
+					// the seat is kept for a while, so it can be taken back
+					reconnect(socket);
 				}
-			} catch (Exception ex) {
+			}
+		}
+
+		/**
+		 * Method to handle a message from the server. A bug in handling one message does not lose the
+		 * connection, which is still good.
+		 * 
+		 * @param message
+		 * 				The message from the server.
+		 */
+		private void handle(CardGameMessage message) {
+			try {
+				parseMessage(message);
+			} catch (RuntimeException ex) {
 				ex.printStackTrace();
 			}
 		}
@@ -13,7 +13,7 @@ public class BigTwoDeck extends Deck {
 
 	/**
 	 * This method is an override method from initialize method in Deck class. This method clear all the 
-	 * Cards in list and create 52 BigTwoCard objects then adds them to ist.
+	 * Cards in list and adds the 52 shared BigTwoCard objects to it.
 	 * 
 	 * @see Deck#initialize()
 	 */
@@ -22,8 +22,7 @@ public class BigTwoDeck extends Deck {
 		removeAllCards();
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 13; j++) {
-				BigTwoCard card = new BigTwoCard(i, j);
-				addCard(card);
+				addCard(BigTwoCard.of(i, j));
 			}
 		}
 	}	
@@ -0,0 +1,341 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class drives a load test of a Big Two server with simulated tables of four headless clients each (see
+ * BigTwoBot), which join, get ready and play their moves as players do. It connects the bots gradually, lets them
+ * warm up, then reports every second the throughput, the percentiles of the latency of the MOVE messages from a
+ * player to each player of the table and, if it started the server itself, the CPU usage of the server. At the
+ * end it closes the bots and prints the statistics of the whole measurement.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class BigTwoLoadTest {
+
+	private static final long RAMP_UP_MILLIS = 2000; // The time over which the bots are connected
+	private static final long SERVER_START_MILLIS = 10000; // The time to wait for a server started by the test
+
+	private final ArrayList<BigTwoBot> bots = new ArrayList<BigTwoBot>(); // The bots of the test
+	private final Map<String, BigTwoBot> botsByName = new ConcurrentHashMap<String, BigTwoBot>(); // The bots by name
+	private final ExecutorService readers; // The executor running the tasks reading the messages of the bots
+	private final ScheduledExecutorService scheduler; // The scheduler delaying the moves of the bots
+	private Process server = null; // The server started by the test, or null if it runs elsewhere
+
+	/**
+	 * Constructor of BigTwoLoadTest class.
+	 *
+	 * @param readers
+	 * 				The executor running the tasks reading the messages of the bots, one task per bot.
+	 *
+	 * @param numOfSchedulerThreads
+	 * 				The number of threads delaying the moves of the bots.
+	 */
+	public BigTwoLoadTest(ExecutorService readers, int numOfSchedulerThreads) {
+		this.readers = readers;
+		this.scheduler = Executors.newScheduledThreadPool(numOfSchedulerThreads);
+	}
+
+	/**
+	 * Method to add a bot to the test; it connects when the test is run. The bots of a test measure the latency
+	 * of each other's moves, so their names must differ.
+	 *
+	 * @param bot
+	 * 				The bot, built with the executors of this test (see getReaders() and getScheduler()).
+	 */
+	public void addBot(BigTwoBot bot) {
+		bots.add(bot);
+		botsByName.put(bot.getPlayerName(), bot);
+		bot.setPeers(botsByName);
+	}
+
+	/**
+	 * Getter of the executor running the tasks reading the messages of the bots.
+	 *
+	 * @return
+	 * 			The executor of the readers.
+	 */
+	public ExecutorService getReaders() {
+		return readers;
+	}
+
+	/**
+	 * Getter of the scheduler delaying the moves of the bots.
+	 *
+	 * @return
+	 * 			The scheduler of the moves.
+	 */
+	public ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Method to start a server for the test in a process of its own, on this machine, with the classes of this
+	 * JVM and without a GUI, and to wait until it accepts connections. The test measures its CPU usage and stops
+	 * it at the end.
+	 *
+	 * @param port
+	 * 				The port of the server.
+	 *
+	 * @param serverArgs
+	 * 				The options of the server (see BigTwoServer.main()).
+	 *
+	 * @throws IOException
+	 * 				If the server cannot be started or does not accept connections in time.
+	 *
+	 * @throws InterruptedException
+	 * 				If the thread is interrupted while waiting.
+	 */
+	public void startServer(int port, ArrayList<String> serverArgs) throws IOException, InterruptedException {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-Djava.awt.headless=true");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("BigTwoServer");
+		command.add(Integer.toString(port));
+		command.addAll(serverArgs);
+		// the server logs every connection; only its CPU usage matters here
+		server = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.start();
+		long deadline = System.currentTimeMillis() + SERVER_START_MILLIS;
+		while (true) {
+			Socket probe = new Socket();
+			try {
+				probe.connect(new InetSocketAddress("127.0.0.1", port), 1000);
+				return;
+			} catch (IOException ex) {
+				if (!server.isAlive() || System.currentTimeMillis() > deadline) {
+					server.destroy();
+					throw new IOException("The server did not start on port " + port);
+				}
+				TimeUnit.MILLISECONDS.sleep(100);
+			} finally {
+				probe.close();
+			}
+		}
+	}
+
+	/**
+	 * Method to run the test: connects the bots over RAMP_UP_MILLIS, lets them warm up, then measures them for
+	 * the specified time with a report every second, and closes them and the server started by the test.
+	 *
+	 * @param warmUpSeconds
+	 * 				The time the bots play before the measurement, e.g. for the JIT compiler to settle.
+	 *
+	 * @param seconds
+	 * 				The time the bots are measured.
+	 *
+	 * @return
+	 * 			A report of the measurement.
+	 *
+	 * @throws InterruptedException
+	 * 				If the thread is interrupted while waiting.
+	 */
+	public String run(long warmUpSeconds, long seconds) throws InterruptedException {
+		long startTime = System.nanoTime();
+		for (int i = 0; i < bots.size(); i++) {
+			bots.get(i).makeConnection();
+			long due = startTime + TimeUnit.MILLISECONDS.toNanos(RAMP_UP_MILLIS) * (i + 1) / bots.size();
+			long wait = due - System.nanoTime();
+			if (wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+		}
+		System.out.println(bots.size() + " bots connected in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+		TimeUnit.SECONDS.sleep(warmUpSeconds);
+
+		LoadTestStats first = collect();
+		long firstTime = System.nanoTime();
+		long firstCpu = getServerCpuNanos();
+		LoadTestStats last = first;
+		long lastTime = firstTime;
+		long lastCpu = firstCpu;
+		for (long s = 1; s <= seconds; s++) {
+			TimeUnit.SECONDS.sleep(1);
+			LoadTestStats total = collect();
+			long now = System.nanoTime();
+			long cpu = getServerCpuNanos();
+			System.out.printf("%3ds: %s%n", s, report(total.copy().subtract(last), now - lastTime,
+					cpu < 0 ? -1 : cpu - lastCpu));
+			last = total;
+			lastTime = now;
+			lastCpu = cpu;
+		}
+		LoadTestStats measured = collect().subtract(first);
+		long measuredTime = System.nanoTime() - firstTime;
+		long measuredCpu = firstCpu < 0 ? -1 : getServerCpuNanos() - firstCpu;
+
+		for (BigTwoBot bot : bots) {
+			bot.close();
+		}
+		scheduler.shutdownNow();
+		readers.shutdownNow();
+		if (server != null) {
+			server.destroy();
+		}
+		return "Total: " + report(measured, measuredTime, measuredCpu) + "\n" + measured;
+	}
+
+	/**
+	 * Method to merge the statistics of the bots at one point in time.
+	 *
+	 * @return
+	 * 			The statistics of all the bots.
+	 */
+	private LoadTestStats collect() {
+		LoadTestStats total = new LoadTestStats();
+		for (BigTwoBot bot : bots) {
+			total.merge(bot.getStats());
+		}
+		return total;
+	}
+
+	/**
+	 * Method to get the CPU time used by the server started by the test.
+	 *
+	 * @return
+	 * 			The CPU time in nanoseconds, or -1 if the test did not start the server or the OS does not tell.
+	 */
+	private long getServerCpuNanos() {
+		if (server == null) {
+			return -1;
+		}
+		Duration cpu = server.toHandle().info().totalCpuDuration().orElse(null);
+		return cpu == null ? -1 : cpu.toNanos();
+	}
+
+	/**
+	 * Method to describe the statistics of an interval on one line: the throughput, the percentiles of the
+	 * latency of the MOVE messages and the CPU usage of the server.
+	 *
+	 * @param stats
+	 * 				The statistics recorded during the interval.
+	 *
+	 * @param nanos
+	 * 				The length of the interval in nanoseconds.
+	 *
+	 * @param cpuNanos
+	 * 				The CPU time used by the server during the interval, negative if unknown.
+	 *
+	 * @return
+	 * 			A string report of the interval.
+	 */
+	private String report(LoadTestStats stats, long nanos, long cpuNanos) {
+		double seconds = nanos / 1e9;
+		LatencyHistogram latency = stats.getMoveLatency();
+		String line = String.format("%.0f moves/s, %.0f messages received/s, %.1f games/s, MOVE latency p50 %.2f ms,"
+				+ " p99 %.2f ms, p99.9 %.2f ms", stats.getMoves() / seconds, stats.getMessagesReceived() / seconds,
+				stats.getGames() / seconds, latency.getValueAtPercentile(50.0) / 1e6,
+				latency.getValueAtPercentile(99.0) / 1e6, latency.getValueAtPercentile(99.9) / 1e6);
+		if (cpuNanos >= 0) {
+			line += String.format(", server CPU %.0f%%", 100.0 * cpuNanos / nanos);
+		}
+		return line;
+	}
+
+	/**
+	 * main() method for running a load test from the command line.
+	 *
+	 * @param args
+	 * 				The host of the server (default 127.0.0.1), its port (default 2396), the number of tables of
+	 * 				four bots (default 25) and the time they are measured in seconds (default 30). The option
+	 * 				"--framed" sends the messages in frames, for a server started with "--nio", and "--binary"
+	 * 				encodes the frames in the binary format; "--think ms" waits that long before each move
+	 * 				(default 100), "--chat n" sends a chat message every n moves of a bot (default 0, none),
+	 * 				"--strategy name" plays "random" or "lowest" moves (default random), "--warm-up seconds"
+	 * 				plays that long before measuring (default 5), and "--virtual" reads the messages of the bots on
+	 * 				virtual threads. The option "--server" starts a headless BigTwoServer on this machine with
+	 * 				"--rooms 0", and "--nio" if the messages are framed, followed by the arguments after "--", and
+	 * 				reports its CPU usage.
+	 *
+	 * @throws Exception
+	 * 				If the server cannot be started or the thread is interrupted.
+	 */
+	public static void main(String[] args) throws Exception {
+		ArrayList<String> positional = new ArrayList<String>();
+		ArrayList<String> serverArgs = new ArrayList<String>();
+		boolean framed = false;
+		boolean binary = false;
+		long thinkMillis = 100;
+		int chatEvery = 0;
+		BigTwoStrategy strategy = BigTwoStrategy.RANDOM;
+		long warmUpSeconds = 5;
+		boolean virtualThreads = false;
+		boolean startServer = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--framed")) {
+				framed = true;
+			} else if (args[i].equals("--binary")) {
+				framed = true;
+				binary = true;
+			} else if (args[i].equals("--think")) {
+				thinkMillis = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--chat")) {
+				chatEvery = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--strategy")) {
+				strategy = "lowest".equals(args[++i]) ? BigTwoStrategy.LOWEST : BigTwoStrategy.RANDOM;
+			} else if (args[i].equals("--warm-up")) {
+				warmUpSeconds = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--virtual")) {
+				virtualThreads = true;
+			} else if (args[i].equals("--server")) {
+				startServer = true;
+			} else if (args[i].equals("--")) {
+				for (i++; i < args.length; i++) {
+					serverArgs.add(args[i]);
+				}
+			} else {
+				positional.add(args[i]);
+			}
+		}
+		String host = positional.size() > 0 ? positional.get(0) : "127.0.0.1";
+		int port = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 2396;
+		int numOfTables = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 25;
+		long seconds = positional.size() > 3 ? Long.parseLong(positional.get(3)) : 30;
+
+		ExecutorService readers = virtualThreads ? CardGameServer.newVirtualThreadExecutor() : null;
+		if (readers == null) {
+			if (virtualThreads) {
+				System.err.println("Virtual threads are not supported by this JVM, using platform threads");
+			}
+			readers = Executors.newCachedThreadPool();
+		}
+		BigTwoLoadTest test = new BigTwoLoadTest(readers, Runtime.getRuntime().availableProcessors());
+		if (startServer) {
+			host = "127.0.0.1";
+			serverArgs.add(0, "--rooms");
+			serverArgs.add(1, "0");
+			if (framed) {
+				serverArgs.add(0, "--nio");
+			}
+			test.startServer(port, serverArgs);
+			System.out.println("Started BigTwoServer " + port + " " + String.join(" ", serverArgs));
+		}
+		Random seeds = new Random();
+		for (int i = 0; i < numOfTables * BigTwoState.NUM_OF_PLAYERS; i++) {
+			BigTwoBot bot = new BigTwoBot("Bot " + i, strategy, new Random(seeds.nextLong()), test.getReaders(),
+					test.getScheduler());
+			bot.setServerIP(host);
+			bot.setServerPort(port);
+			bot.setProtocol(framed, binary);
+			bot.setPace(thinkMillis, chatEvery);
+			test.addBot(bot);
+		}
+		System.out.println("Load testing " + host + ":" + port + " with " + numOfTables + " tables for " + seconds
+				+ " s after " + warmUpSeconds + " s of warm-up, " + strategy + " moves every " + thinkMillis + " ms"
+				+ (framed ? (binary ? ", binary frames" : ", framed") : ""));
+		System.out.print(test.run(warmUpSeconds, seconds));
+	}
+}
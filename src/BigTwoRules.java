@@ -0,0 +1,103 @@
+
+/**
+ * This class implements the rules of the Big Two game for checking a move. It works on a BigTwoState and does
+ * not touch any user interface, so that the client, the server or a simulation can all check moves the same way.
+ * The selected cards are classified exactly once, and a Hand object is only created for the hand being played.
+ * The first hand of a game must contain the 3 of Diamond, as in MoveGenerator.
+ *
+ * @author Li Gengyu
+ *
+ */
+public final class BigTwoRules {
+
+	private static final long THREE_OF_DIAMOND = CardSet.bitOf(BigTwoCard.of(0, 2)); // Must be in the first hand
+
+	/**
+	 * This class only has static methods.
+	 */
+	private BigTwoRules() {
+	}
+
+	/**
+	 * Method to check a move by a given player with the given indices of cards in the player's hand. The state is
+	 * not changed, a legal result should be passed to BigTwoState#makeMove to make the move.
+	 *
+	 * @param state
+	 * 				The state of the game before the move.
+	 *
+	 * @param playerID
+	 * 				Player ID who is about to make move.
+	 *
+	 * @param cardIdx
+	 * 				An array of indices of the cards to be played, null for a pass.
+	 *
+	 * @return
+	 * 			The result of the move: LEGAL, GAME_OVER if the player runs out of cards with it, or ILLEGAL with
+	 * 			the reason.
+	 */
+	public static MoveResult checkMove(BigTwoState state, int playerID, int[] cardIdx) {
+		if (playerID != state.getCurrentIdx()) {
+			return illegal(MoveResult.Reason.NOT_YOUR_TURN, playerID, null);
+		}
+		boolean leading = state.isLeading();
+		if (cardIdx == null) {
+			if (leading) {
+				return illegal(MoveResult.Reason.CANNOT_PASS, playerID, null);
+			}
+			return new MoveResult(MoveResult.Status.LEGAL, MoveResult.Reason.NONE, playerID, null);
+		}
+
+		CardGamePlayer player = state.getPlayerList().get(playerID);
+		CardList cardsInHand = player.getCardsInHand();
+		long mask = 0L;
+		for (int i = 0; i < cardIdx.length; i++) {
+			Card card = cardsInHand.getCard(cardIdx[i]);
+			if (card == null) {
+				return illegal(MoveResult.Reason.INVALID_INDEX, playerID, null);
+			}
+			long bit = CardSet.bitOf(card);
+			if ((mask & bit) != 0) {
+				return illegal(MoveResult.Reason.NOT_A_HAND, playerID, null);
+			}
+			mask |= bit;
+		}
+
+		int code = HandClassifier.classify(mask);
+		if (code == HandClassifier.INVALID) {
+			return illegal(MoveResult.Reason.NOT_A_HAND, playerID, null);
+		}
+		if (state.isFirstMove() && (mask & THREE_OF_DIAMOND) == 0) {
+			return illegal(MoveResult.Reason.MISSING_THREE_OF_DIAMOND, playerID, null);
+		}
+		Hand hand = HandClassifier.newHand(code, player, player.play(cardIdx));
+		if (!leading) {
+			Hand lastHand = state.getLastHand();
+			if (!hand.beats(lastHand)) {
+				return illegal(MoveResult.Reason.DOES_NOT_BEAT, playerID, hand);
+			}
+		}
+		if (hand.size() == player.getNumOfCards()) {
+			return new MoveResult(MoveResult.Status.GAME_OVER, MoveResult.Reason.NONE, playerID, hand);
+		}
+		return new MoveResult(MoveResult.Status.LEGAL, MoveResult.Reason.NONE, playerID, hand);
+	}
+
+	/**
+	 * Method to create the result of an illegal move.
+	 *
+	 * @param reason
+	 * 				Why the move is illegal.
+	 *
+	 * @param playerID
+	 * 				The player who makes the move.
+	 *
+	 * @param hand
+	 * 				The hand which was tried, or null.
+	 *
+	 * @return
+	 * 			An ILLEGAL result.
+	 */
+	private static MoveResult illegal(MoveResult.Reason reason, int playerID, Hand hand) {
+		return new MoveResult(MoveResult.Status.ILLEGAL, reason, playerID, hand);
+	}
+}
@@ -1,3 +1,5 @@
+import java.util.concurrent.ExecutorService;
+
 /**
  * This class is used to model a Big Two card game server.
  * @author Kenneth Wong
@@ -10,6 +12,17 @@ public class BigTwoServer extends CardGameServer {
 	public BigTwoServer() {
 		super("Big Two Server", 4);
 	}
+
+	/**
+	 * Creates and returns an instance of the BigTwoServer class hosting
+	 * several games, each one in a room of its own.
+	 * 
+	 * @param maxNumOfRooms
+	 *            the maximum number of rooms, or 0 for no limit
+	 */
+	public BigTwoServer(int maxNumOfRooms) {
+		super("Big Two Server", 4, maxNumOfRooms);
+	}
 	
 	/**
 	 * Creates and returns an instance of the BigTwoDeck class.
@@ -23,15 +36,96 @@ public class BigTwoServer extends CardGameServer {
 	 * main() method for starting the server.
 	 * 
 	 * @param args
-	 *            the port to be used by the server. The default port 5000 will
-	 *            be used if no arguments has been supplied
+	 *            the port to be used by the server. The default port 2396 will
+	 *            be used if no arguments has been supplied. The option "--nio
+	 *            [threads]" starts the server in non-blocking mode with the
+	 *            specified number of I/O threads (by default the number of
+	 *            cores), in which the clients must use the framed protocol.
+	 *            The option "--virtual" runs the handlers of the clients on
+	 *            virtual threads in blocking mode, "--rooms n" hosts up to n
+	 *            games at the same time (1 by default, 0 for no limit),
+	 *            "--slow-client policy [threshold]" sets what is done with a
+	 *            client which has threshold (at least 1) messages waiting (drop-chat,
+	 *            coalesce or disconnect), "--reset-every messages [bytes]"
+	 *            resets the ObjectOutputStream of a client in blocking mode
+	 *            after that many messages or bytes (0 for no limit),
+	 *            "--nodelay" disables Nagle's algorithm on the sockets of the
+	 *            clients, "--grace seconds" keeps the seat of a player who
+	 *            loses the connection during a game for that time (0 to stop
+	 *            the game at once), and "--status seconds" reports the connections and threads of
+	 *            the server at the specified interval. Without a display
+	 *            (java.awt.headless), the server prints to the standard
+	 *            output instead of opening its window
 	 */
 	public static void main(String[] args) {
-		BigTwoServer server = new BigTwoServer();
-		if (args.length > 0) {
-			server.start(Integer.parseInt(args[0]));
+		int port = 2396;
+		int numOfIoThreads = 0;
+		boolean virtualThreads = false;
+		long statusSeconds = 0;
+		int maxNumOfRooms = 1;
+		OutboundQueue.Policy queuePolicy = OutboundQueue.Policy.DROP_CHAT;
+		int queueThreshold = OutboundQueue.DEFAULT_THRESHOLD;
+		int resetMessageBudget = SerializationChannel.DEFAULT_MESSAGE_BUDGET;
+		long resetByteBudget = SerializationChannel.DEFAULT_BYTE_BUDGET;
+		long gracePeriodMillis = CardGameServer.DEFAULT_GRACE_PERIOD;
+		boolean tcpNoDelay = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--nio")) {
+				numOfIoThreads = Runtime.getRuntime().availableProcessors();
+				if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+					numOfIoThreads = Integer.parseInt(args[++i]);
+				}
+			} else if (args[i].equals("--virtual")) {
+				virtualThreads = true;
+			} else if (args[i].equals("--rooms")) {
+				maxNumOfRooms = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--slow-client")) {
+				queuePolicy = OutboundQueue.Policy.fromName(args[++i]);
+				if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+					queueThreshold = Integer.parseInt(args[++i]);
+				}
+			} else if (args[i].equals("--reset-every")) {
+				resetMessageBudget = Integer.parseInt(args[++i]);
+				if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+					resetByteBudget = Long.parseLong(args[++i]);
+				}
+			} else if (args[i].equals("--nodelay")) {
+				tcpNoDelay = true;
+			} else if (args[i].equals("--grace")) {
+				gracePeriodMillis = Long.parseLong(args[++i]) * 1000;
+			} else if (args[i].equals("--status")) {
+				statusSeconds = Long.parseLong(args[++i]);
+			} else {
+				port = Integer.parseInt(args[i]);
+			}
+		}
+
+		if (queueThreshold < 1) {
+			// checked before the window opens, as a queue must hold a message
+			System.err.println("Usage error: the threshold of --slow-client must be at least 1");
+			System.exit(1);
+		}
+
+		BigTwoServer server = new BigTwoServer(maxNumOfRooms);
+		server.setOutboundQueuePolicy(queuePolicy, queueThreshold);
+		server.setSerializationBudget(resetMessageBudget, resetByteBudget);
+		server.setTcpNoDelay(tcpNoDelay);
+		server.setGracePeriod(gracePeriodMillis);
+		if (virtualThreads) {
+			ExecutorService executor = newVirtualThreadExecutor();
+			if (executor != null) {
+				server.setHandlerExecutor(executor);
+			} else {
+				System.err.println("Virtual threads are not supported by this JVM, using platform threads");
+			}
+		}
+		if (statusSeconds > 0) {
+			server.reportStatus(statusSeconds);
+		}
+		if (numOfIoThreads > 0) {
+			server.startNio(port, numOfIoThreads);
 		} else {
-			server.start(2396);
+			server.start(port);
 		}
 	} // main
 }
@@ -0,0 +1,197 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class plays Big Two games without any user interface or network, for evaluating strategies and rules
+ * offline. Each game is dealt from a BigTwoDeck, played move by move through BigTwoRules by the strategy of each
+ * seat until one player runs out of cards, and recorded in a SimulationStats.
+ * <p>
+ * The games are split into independent batches run on a ForkJoinPool. Every batch has its own Random seeded from
+ * the seed of the run and the index of its first game, its own game state and its own statistics, so the
+ * workers share nothing while they play and a run gives the same statistics for the same seed whatever the
+ * number of threads.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class BigTwoSimulator {
+
+	/**
+	 * The number of games below which a batch is played by one worker rather than split.
+	 */
+	public static final int BATCH_SIZE = 256;
+
+	private final BigTwoStrategy[] strategies; // The strategy of each seat
+	private final int parallelism; // The number of worker threads
+
+	/**
+	 * Constructor of BigTwoSimulator class.
+	 *
+	 * @param strategies
+	 * 				The strategy of each of the four seats.
+	 *
+	 * @param parallelism
+	 * 				The number of worker threads, usually the number of cores.
+	 */
+	public BigTwoSimulator(BigTwoStrategy[] strategies, int parallelism) {
+		if (strategies.length != BigTwoState.NUM_OF_PLAYERS) {
+			throw new IllegalArgumentException("A strategy is needed for each of the "
+					+ BigTwoState.NUM_OF_PLAYERS + " players");
+		}
+		this.strategies = strategies.clone();
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Method to play a number of games and collect their statistics.
+	 *
+	 * @param numOfGames
+	 * 				The number of games to be played.
+	 *
+	 * @param seed
+	 * 				The seed from which the random number generators of the workers are derived.
+	 *
+	 * @return
+	 * 			The statistics of all the games, including the throughput of the run.
+	 */
+	public SimulationStats run(long numOfGames, long seed) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			long start = System.nanoTime();
+			SimulationStats stats = pool.invoke(new Batch(0, numOfGames, seed));
+			stats.setElapsedNanos(System.nanoTime() - start);
+			return stats;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Method to play one game to its end on the calling thread.
+	 *
+	 * @param deck
+	 * 				The deck of the worker, shuffled again for every game.
+	 *
+	 * @param state
+	 * 				The state to play the game in, reset by the deal.
+	 *
+	 * @param moves
+	 * 				The move generator of the worker.
+	 *
+	 * @param random
+	 * 				The random number generator of the worker.
+	 *
+	 * @param stats
+	 * 				The statistics of the worker, to which the game is recorded.
+	 */
+	public void playGame(Deck deck, BigTwoState state, MoveGenerator moves, Random random,
+			SimulationStats stats) {
+		deck.shuffle(random);
+		state.start(deck);
+		int movesInGame = 0, passesInGame = 0;
+		while (!state.endOfGame()) {
+			int playerID = state.getCurrentIdx();
+			moves.reset(state);
+			long move = strategies[playerID].chooseMove(state, moves, random);
+			CardList cardsInHand = state.getPlayerList().get(playerID).getCardsInHand();
+			MoveResult result = BigTwoRules.checkMove(state, playerID, MoveGenerator.toCardIdx(cardsInHand, move));
+			if (!result.isLegal()) {
+				throw new IllegalStateException("Strategy " + strategies[playerID] + " made an illegal move: "
+						+ result.getReason());
+			}
+			state.makeMove(result);
+			if (result.isPass()) {
+				passesInGame++;
+			} else {
+				movesInGame++;
+			}
+		}
+		stats.record(state, movesInGame, passesInGame);
+	}
+
+	/**
+	 * This class is a task playing the games from one index to another, split in halves until the batch is
+	 * small enough to be played by one worker.
+	 *
+	 * @author Li Gengyu
+	 *
+	 */
+	private class Batch extends RecursiveTask<SimulationStats> {
+
+		/**
+		 * This is a default serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+		private final long from; // The index of the first game of the batch
+		private final long to; // The index after the last game of the batch
+		private final long seed; // The seed of the run
+
+		/**
+		 * Constructor of Batch class.
+		 *
+		 * @param from
+		 * 				The index of the first game of the batch.
+		 *
+		 * @param to
+		 * 				The index after the last game of the batch.
+		 *
+		 * @param seed
+		 * 				The seed of the run.
+		 */
+		Batch(long from, long to, long seed) {
+			this.from = from;
+			this.to = to;
+			this.seed = seed;
+		}
+
+		/**
+		 * Plays the games of the batch, or splits it into two halves run in parallel.
+		 *
+		 * @return
+		 * 			The statistics of the games of the batch.
+		 *
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected SimulationStats compute() {
+			if (to - from > BATCH_SIZE) {
+				long middle = from + (to - from) / 2;
+				Batch left = new Batch(from, middle, seed);
+				left.fork();
+				SimulationStats right = new Batch(middle, to, seed).compute();
+				return right.merge(left.join());
+			}
+			Random random = new Random(seed * 0x9E3779B97F4A7C15L + from);
+			BigTwoDeck deck = new BigTwoDeck();
+			BigTwoState state = new BigTwoState();
+			MoveGenerator moves = new MoveGenerator();
+			SimulationStats stats = new SimulationStats();
+			for (long i = from; i < to; i++) {
+				playGame(deck, state, moves, random, stats);
+			}
+			return stats;
+		}
+	}
+
+	/**
+	 * main() method for running a simulation from the command line.
+	 *
+	 * @param args
+	 * 				The number of games (default 100000), the seed (default the current time), the number of
+	 * 				threads (default the number of cores) and the strategy of each seat, "random" or "lowest"
+	 * 				(default seat 0 lowest and the others random).
+	 */
+	public static void main(String[] args) {
+		long numOfGames = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		BigTwoStrategy[] strategies = { BigTwoStrategy.LOWEST, BigTwoStrategy.RANDOM, BigTwoStrategy.RANDOM,
+				BigTwoStrategy.RANDOM };
+		for (int i = 0; i < strategies.length && i + 3 < args.length; i++) {
+			strategies[i] = "lowest".equals(args[i + 3]) ? BigTwoStrategy.LOWEST : BigTwoStrategy.RANDOM;
+		}
+		System.out.println("Simulating " + numOfGames + " games on " + threads + " threads, seed " + seed);
+		System.out.print(new BigTwoSimulator(strategies, threads).run(numOfGames, seed));
+	}
+}
@@ -0,0 +1,123 @@
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class encodes a Big Two game in progress into a compact snapshot, sent by the server to a client which
+ * takes its seat back after losing the connection, and restores a BigTwoState from it. A snapshot holds the
+ * current player, whether the next move is the first one, the player of the last hand on the table, and the cards
+ * of that hand and of the hand of each player as 52-bit masks in 7 bytes each, i.e. SIZE bytes in all. The hands
+ * played before the last one are not part of it, as neither the rules nor the table look at them.
+ *
+ * @author Li Gengyu
+ *
+ */
+public final class BigTwoSnapshot {
+
+	/**
+	 * The size of a snapshot in bytes.
+	 */
+	public static final int SIZE = 3 + (BigTwoState.NUM_OF_PLAYERS + 1) * 7;
+
+	private static final int FIRST_MOVE = 1; // The flag set if the next move is the first one
+	private static final int NO_PLAYER = 0xFF; // The player of the last hand when no hand is on the table
+
+	/**
+	 * This class only has static methods.
+	 */
+	private BigTwoSnapshot() {
+	}
+
+	/**
+	 * Method to take a snapshot of a game.
+	 *
+	 * @param state
+	 * 				The game in progress.
+	 *
+	 * @return
+	 * 			The snapshot of the game.
+	 */
+	public static byte[] encode(BigTwoState state) {
+		ByteBuffer out = ByteBuffer.allocate(SIZE);
+		out.put((byte) state.getCurrentIdx());
+		out.put((byte) (state.isFirstMove() ? FIRST_MOVE : 0));
+		Hand lastHand = state.getLastHand();
+		if (lastHand == null) {
+			out.put((byte) NO_PLAYER);
+			putMask(out, 0L);
+		} else {
+			out.put((byte) state.getPlayerList().indexOf(lastHand.getPlayer()));
+			putMask(out, lastHand.getMask());
+		}
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			putMask(out, state.getPlayerList().get(i).getCardsInHand().getMask());
+		}
+		return out.array();
+	}
+
+	/**
+	 * Method to restore a game from a snapshot.
+	 *
+	 * @param snapshot
+	 * 				The snapshot of the game.
+	 *
+	 * @param state
+	 * 				The state into which the game is restored, whatever it held before.
+	 *
+	 * @throws StreamCorruptedException
+	 * 				If the snapshot is not a valid one.
+	 */
+	public static void restore(byte[] snapshot, BigTwoState state) throws StreamCorruptedException {
+		try {
+			ByteBuffer in = ByteBuffer.wrap(snapshot);
+			int currentIdx = in.get() & 0xFF;
+			boolean firstMove = (in.get() & FIRST_MOVE) != 0;
+			int lastPlayer = in.get() & 0xFF;
+			long lastHandMask = getMask(in);
+			long[] handMasks = new long[BigTwoState.NUM_OF_PLAYERS];
+			for (int i = 0; i < handMasks.length; i++) {
+				handMasks[i] = getMask(in);
+			}
+			if (currentIdx >= BigTwoState.NUM_OF_PLAYERS
+					|| (lastPlayer != NO_PLAYER && lastPlayer >= BigTwoState.NUM_OF_PLAYERS)) {
+				throw new StreamCorruptedException("Invalid player in a snapshot");
+			}
+			state.restore(handMasks, lastPlayer == NO_PLAYER ? -1 : lastPlayer, lastHandMask, currentIdx,
+					firstMove);
+		} catch (BufferUnderflowException ex) {
+			throw new StreamCorruptedException("Truncated snapshot");
+		}
+	}
+
+	/**
+	 * Method to put a mask of cards in 7 bytes.
+	 *
+	 * @param out
+	 * 				The buffer of the snapshot.
+	 *
+	 * @param mask
+	 * 				The mask of the cards.
+	 */
+	private static void putMask(ByteBuffer out, long mask) {
+		for (int shift = 48; shift >= 0; shift -= 8) {
+			out.put((byte) (mask >>> shift));
+		}
+	}
+
+	/**
+	 * Method to get a mask of cards from 7 bytes.
+	 *
+	 * @param in
+	 * 				The buffer of the snapshot.
+	 *
+	 * @return
+	 * 			The mask of the cards.
+	 */
+	private static long getMask(ByteBuffer in) {
+		long mask = 0L;
+		for (int i = 0; i < 7; i++) {
+			mask = (mask << 8) | (in.get() & 0xFFL);
+		}
+		return mask & CardSet.FULL_MASK;
+	}
+}
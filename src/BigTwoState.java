@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+
+/**
+ * This class models the state of a Big Two game without any user interface: the players with the cards in their
+ * hands, the hands played on the table, the current player and whether the next move is the first one of the
+ * game. It is shared by the client, which draws it on the table, and by any other code which needs to follow a
+ * game, and it is changed only through start, makeMove, restore and reset.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class BigTwoState {
+
+	/**
+	 * The number of players in a Big Two game.
+	 */
+	public static final int NUM_OF_PLAYERS = 4;
+
+	/**
+	 * The number of cards dealt to each player.
+	 */
+	public static final int CARDS_PER_PLAYER = 13;
+
+	private ArrayList<CardGamePlayer> playerList; // A list of players.
+	private ArrayList<Hand> handsOnTable; // A list of hands played on the table.
+	private int currentIdx; // An integer specifying the index of the player for the current turn.
+	private boolean firstMove; // A boolean indicates if this is the first move
+
+	/**
+	 * Constructor of BigTwoState class, which creates the four players with empty hands.
+	 */
+	public BigTwoState() {
+		playerList = new ArrayList<CardGamePlayer>();
+		handsOnTable = new ArrayList<Hand>();
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			playerList.add(new CardGamePlayer("Player " + i));
+		}
+	}
+
+	/**
+	 * Getter of the player list.
+	 *
+	 * @return
+	 * 			Return a CardGamePlayer ArrayList which store the 4 players in the game.
+	 */
+	public ArrayList<CardGamePlayer> getPlayerList() {
+		return playerList;
+	}
+
+	/**
+	 * Getter of the hands played on the table.
+	 *
+	 * @return
+	 * 			Return a Hand ArrayList which store all the hands that have been played on table.
+	 */
+	public ArrayList<Hand> getHandsOnTable() {
+		return handsOnTable;
+	}
+
+	/**
+	 * Getter of the last hand played on the table.
+	 *
+	 * @return
+	 * 			The last hand played, or null if no hand has been played.
+	 */
+	public Hand getLastHand() {
+		if (handsOnTable.isEmpty()) {
+			return null;
+		}
+		return handsOnTable.get(handsOnTable.size() - 1);
+	}
+
+	/**
+	 * Getter of the index of the current player.
+	 *
+	 * @return
+	 * 			Return an integer to show the current index of player
+	 */
+	public int getCurrentIdx() {
+		return currentIdx;
+	}
+
+	/**
+	 * Method to judge whether the next move is the first move of the game.
+	 *
+	 * @return
+	 * 			True if no hand has been played in this game, and vice versa.
+	 */
+	public boolean isFirstMove() {
+		return firstMove;
+	}
+
+	/**
+	 * Method to judge whether the current player is leading, that is, the player makes the first move or all
+	 * the other players have passed on the player's last hand. A leading player may play any hand but cannot pass.
+	 *
+	 * @return
+	 * 			True if the current player is leading, and vice versa.
+	 */
+	public boolean isLeading() {
+		return firstMove || handsOnTable.isEmpty()
+				|| getLastHand().getPlayer() == playerList.get(currentIdx);
+	}
+
+	/**
+	 * Method to start a new game. It clears all the cards in the players' hands and on the table, deals the
+	 * deck to the players in order and lets the holder of the 3 of Diamond move first.
+	 *
+	 * @param deck
+	 * 				The deck which has been shuffled, from which we distribute cards to players.
+	 */
+	public void start(Deck deck) {
+		reset();
+		Card threeOfDiamond = BigTwoCard.of(0, 2);
+		int startingPos = 0;
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			CardGamePlayer player = playerList.get(i);
+			for (int j = startingPos; j < startingPos + CARDS_PER_PLAYER; j++) {
+				player.addCard(deck.getCard(j));
+			}
+			player.sortCardsInHand();
+			startingPos += CARDS_PER_PLAYER;
+			if (player.getCardsInHand().contains(threeOfDiamond)) {
+				currentIdx = i;
+			}
+		}
+		firstMove = true;
+	}
+
+	/**
+	 * Method to restore a game in progress, e.g. from a snapshot (see BigTwoSnapshot). Only the last hand on the
+	 * table is restored, as the rules and the table only look at the last one.
+	 *
+	 * @param handMasks
+	 * 				The masks of the cards in the hand of each player.
+	 *
+	 * @param lastPlayer
+	 * 				The player of the last hand on the table, or -1 if no hand is on the table.
+	 *
+	 * @param lastHandMask
+	 * 				The mask of the cards of the last hand on the table.
+	 *
+	 * @param currentIdx
+	 * 				The index of the current player.
+	 *
+	 * @param firstMove
+	 * 				Whether the next move is the first one of the game.
+	 */
+	public void restore(long[] handMasks, int lastPlayer, long lastHandMask, int currentIdx, boolean firstMove) {
+		reset();
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			CardGamePlayer player = playerList.get(i);
+			for (Card card : new CardSet(handMasks[i])) {
+				player.addCard(card);
+			}
+			player.sortCardsInHand();
+		}
+		if (lastPlayer >= 0) {
+			CardList cards = new CardList();
+			for (Card card : new CardSet(lastHandMask)) {
+				cards.addCard(card);
+			}
+			Hand hand = HandClassifier.newHand(HandClassifier.classify(lastHandMask), playerList.get(lastPlayer),
+					cards);
+			if (hand != null) {
+				handsOnTable.add(hand);
+			}
+		}
+		this.currentIdx = currentIdx;
+		this.firstMove = firstMove;
+	}
+
+	/**
+	 * Method to clear all the cards in the players' hands and on the table.
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			playerList.get(i).getCardsInHand().removeAllCards();
+		}
+		handsOnTable.clear();
+		firstMove = false;
+	}
+
+	/**
+	 * Method to make a legal move checked by BigTwoRules. The hand, if any, is put on the table and its cards
+	 * are removed from the player, then the turn goes to the next player.
+	 *
+	 * @param result
+	 * 				The result of BigTwoRules#checkMove for the current state.
+	 */
+	public void makeMove(MoveResult result) {
+		if (!result.isLegal()) {
+			return;
+		}
+		Hand hand = result.getHand();
+		if (hand != null) {
+			handsOnTable.add(hand);
+			playerList.get(result.getPlayerID()).removeCards(hand);
+			firstMove = false;
+		}
+		currentIdx = (result.getPlayerID() + 1) % NUM_OF_PLAYERS;
+	}
+
+	/**
+	 * To judge whether the game is over or not, when one player run out of cards, game is over.
+	 *
+	 * @return
+	 * 			Return a boolean value to show whether the game is over or not, true if over and vice versa.
+	 */
+	public boolean endOfGame() {
+		return getWinner() != -1;
+	}
+
+	/**
+	 * Method to find the player who has run out of cards.
+	 *
+	 * @return
+	 * 			The index of the winner, or -1 if the game is not over.
+	 */
+	public int getWinner() {
+		for (int i = 0; i < NUM_OF_PLAYERS; i++) {
+			if (playerList.get(i).getNumOfCards() == 0 && !handsOnTable.isEmpty()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
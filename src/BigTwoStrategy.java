@@ -0,0 +1,78 @@
+import java.util.Random;
+
+/**
+ * An interface for a strategy which decides the moves of a player without any user interface, used by the
+ * simulator and by automatic players. A strategy must not keep any state between calls, so that one strategy
+ * object can play for many players on many threads at the same time; all the randomness it needs comes from
+ * the Random object it is given.
+ *
+ * @author Li Gengyu
+ *
+ */
+public interface BigTwoStrategy {
+
+	/**
+	 * A strategy which picks one of the legal moves uniformly at random, and passes instead with a chance of one
+	 * in the number of legal moves plus one when it is allowed to pass.
+	 */
+	public static final BigTwoStrategy RANDOM = new BigTwoStrategy() {
+		@Override
+		public long chooseMove(BigTwoState state, MoveGenerator moves, Random random) {
+			long chosen = 0L;
+			int count = state.isLeading() ? 0 : 1; // A pass is one of the choices when following
+			while (moves.next()) {
+				count++;
+				if (random.nextInt(count) == 0) {
+					chosen = moves.getMove();
+				}
+			}
+			return chosen;
+		}
+
+		@Override
+		public String toString() {
+			return "random";
+		}
+	};
+
+	/**
+	 * A greedy strategy which always plays the weakest legal move. When leading it prefers the move with the
+	 * most cards, to get rid of cards quickly, and among those the weakest one.
+	 */
+	public static final BigTwoStrategy LOWEST = new BigTwoStrategy() {
+		@Override
+		public long chooseMove(BigTwoState state, MoveGenerator moves, Random random) {
+			long chosen = 0L;
+			int chosenSize = 0, chosenStrength = Integer.MAX_VALUE;
+			while (moves.next()) {
+				int size = Long.bitCount(moves.getMove());
+				if (size > chosenSize || (size == chosenSize && moves.getStrength() < chosenStrength)) {
+					chosen = moves.getMove();
+					chosenSize = size;
+					chosenStrength = moves.getStrength();
+				}
+			}
+			return chosen;
+		}
+
+		@Override
+		public String toString() {
+			return "lowest";
+		}
+	};
+
+	/**
+	 * Chooses the move of the current player of the game.
+	 *
+	 * @param state
+	 *            the state of the game, which must not be changed
+	 * @param moves
+	 *            a generator already reset to the legal moves of the current
+	 *            player
+	 * @param random
+	 *            the source of randomness of the calling thread
+	 * @return the mask of the cards to be played (one of the moves listed by
+	 *         the generator), or 0 to pass
+	 */
+	public long chooseMove(BigTwoState state, MoveGenerator moves, Random random);
+}
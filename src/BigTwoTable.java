@@ -26,11 +26,13 @@ public class BigTwoTable implements CardGameTable {
 	private JMenu menu; // A menu to contain two items
 	private JMenuItem qM; // The quit menu item
 	private JMenuItem cM; // The connect menu item
-	private Image[][] cardImages; // A 2D array storing the images for the faces of the cards
-	private Image cardBackImage; // An image for the backs of the cards
-	private Image[] avatars; // An array storing the images for the avatars
-	private Image background; // An image for the background
-	private Image star; // A star image specifying which is the current player to make move
+	private CardImageAtlas images; // The images of the cards, avatars, star and background, scaled to the panel
+	private JMenuItem sM; // The paint statistics menu item
+	private int numOfPaints = 0; // The number of paints of the panel since the statistics were last shown
+	private long paintNanos = 0; // The time spent painting the panel since then
+	private long maxPaintNanos = 0; // The longest paint of the panel since then
+	private double paintedArea = 0; // The painted area since then, in panels
+	private long statsSince = System.nanoTime(); // The time at which the statistics were last shown
 	
 	/**
 	 * Constructor of the BigTwoTable class, it take a CardGame as parameter and make objects of all the 
@@ -50,25 +52,11 @@ public class BigTwoTable implements CardGameTable {
 		frame.setMinimumSize(new Dimension(1200, 800));
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		  
-		cardBackImage = new ImageIcon("back.jpg").getImage();
-		avatars = new Image[4];
-		for (int i = 0; i < 4; i++) {
-			avatars[i] = new ImageIcon(Integer.toString(i) + ".jpg").getImage();
-		}
-		  
-		cardImages = new Image[13][4];
-		String suitsArr[] = new String[]{ "d.jpg", "c.jpg", "h.jpg", "s.jpg" };
-		for (int i = 0; i < 13; i++) {
-			for (int j = 0; j < 4; j++) {
-				cardImages[i][j] = new ImageIcon(Integer.toString(i + 1) + suitsArr[j]).getImage();
-		    }
-		}	
+		images = new CardImageAtlas();
 		
 		bigTwoPanel = new BigTwoPanel();
 		bigTwoPanel.addMouseListener(new BigTwoPanel());
 		frame.add(bigTwoPanel, BorderLayout.CENTER);
-		
-		background = new ImageIcon("background.jpg").getImage();
 		  
 		playButton = new JButton("play");
 		playButton.setFont(new Font("Verdana", 1, 13));
@@ -102,8 +90,13 @@ public class BigTwoTable implements CardGameTable {
 		cM.addActionListener(new ConnectMenuItemListener());
 		cM.setFont(new Font("Verdana", 1, 13));
 		  
+		sM = new JMenuItem("Paint stats");
+		sM.addActionListener(new StatsMenuItemListener());
+		sM.setFont(new Font("Verdana", 1, 13));
+		  
 		menu.add(qM);
 		menu.add(cM);
+		menu.add(sM);
 		mb.add(menu);
 		frame.add(mb, BorderLayout.NORTH);
 		  
@@ -129,8 +122,6 @@ public class BigTwoTable implements CardGameTable {
 		textPanel.add(scroller);
 		textPanel.add(chatScroller);
 		
-		star = new ImageIcon("star.jpg").getImage();
-		
 		frame.add(textPanel, BorderLayout.EAST);
 		frame.setVisible(true);
 	}
@@ -190,15 +181,67 @@ public class BigTwoTable implements CardGameTable {
 	}
 
 	/**
-	 * Repaints the GUI.
+	 * Repaints the whole card panel. The text areas repaint themselves when their text changes.
 	 * 
 	 * @see CardGameTable#repaint()
 	 */
 	@Override
 	public void repaint() {
-		frame.repaint();
 		bigTwoPanel.repaint();		
 	}
+	
+	/**
+	 * Repaints only the row of a player in the card panel, i.e. the name, avatar, star and cards of the player.
+	 * 
+	 * @param playerID
+	 * 				The index of the player.
+	 */
+	public void repaintPlayer(int playerID) {
+		if (playerID >= 0 && playerID < 4) {
+			repaintRow(playerID);
+		}
+	}
+	
+	/**
+	 * Repaints only the strip of the card panel showing the last hand on the table.
+	 */
+	public void repaintTable() {
+		repaintRow(4);
+	}
+	
+	/**
+	 * Method to repaint one of the five rows of the card panel, the four players and the table.
+	 * 
+	 * @param row
+	 * 				The index of the row.
+	 */
+	private void repaintRow(int row) {
+		int height = bigTwoPanel.getHeight();
+		int top = height * row / 5;
+		bigTwoPanel.repaint(0, top, bigTwoPanel.getWidth(), height * (row + 1) / 5 - top + 1);
+	}
+	
+	/**
+	 * Method to get the statistics of the paints of the card panel since they were last shown, and start
+	 * counting again: the number of paints and paints per second, the average and longest paint time, and the
+	 * share of the panel painted on average.
+	 * 
+	 * @return
+	 * 			A line describing the paints of the card panel.
+	 */
+	public String getPaintStats() {
+		long now = System.nanoTime();
+		double seconds = (now - statsSince) / 1e9;
+		String stats = String.format("%d paints (%.1f/s), %.2f ms on average, %.2f ms at most, %.0f%% of the panel",
+				numOfPaints, numOfPaints / seconds, numOfPaints == 0 ? 0.0 : paintNanos / 1e6 / numOfPaints,
+				maxPaintNanos / 1e6, numOfPaints == 0 ? 0.0 : 100 * paintedArea / numOfPaints);
+		numOfPaints = 0;
+		paintNanos = 0;
+		maxPaintNanos = 0;
+		paintedArea = 0;
+		statsSince = now;
+		return stats;
+	}
 
 	/**
 	 * Prints the specified string to the message area of the card game table.
@@ -297,7 +340,9 @@ public class BigTwoTable implements CardGameTable {
 		/**
 		 * This method handles everything that should be painted on the panel, this method will be
 		 * called automatically when repaint method is called to repaint everything every time 
-		 * there is repaint. This  method will never be called explicitly. 
+		 * there is repaint. This  method will never be called explicitly. The images are copied from the
+		 * atlas, which is scaled again only when the panel has been resized, and only the rows within the
+		 * region to be repainted are drawn.
 		 * 
 		 * @param g
 		 * 			A Graphics object for drawing the panel.
@@ -306,10 +351,59 @@ public class BigTwoTable implements CardGameTable {
 		 */
 		@Override
 		public void paintComponent(Graphics g) {
+			long start = System.nanoTime();
+			Rectangle clip = g.getClipBounds();
+			paintRows(g, clip);
+			long nanos = System.nanoTime() - start;
+			numOfPaints++;
+			paintNanos += nanos;
+			maxPaintNanos = Math.max(maxPaintNanos, nanos);
+			if (clip != null && getWidth() > 0 && getHeight() > 0) {
+				paintedArea += (double) clip.width * clip.height / getWidth() / getHeight();
+			} else {
+				paintedArea += 1;
+			}
+		}
+		
+		/**
+		 * Method to tell whether a row of the panel lies within the region to be repainted.
+		 * 
+		 * @param clip
+		 * 				The region to be repainted, or null for the whole panel.
+		 * 
+		 * @param row
+		 * 				The index of the row, 0 to 3 for the players and 4 for the table.
+		 * 
+		 * @return
+		 * 			True if the row has to be drawn.
+		 */
+		private boolean inClip(Rectangle clip, int row) {
+			if (clip == null) {
+				return true;
+			}
+			int top = getHeight() * row / 5;
+			int bottom = getHeight() * (row + 1) / 5;
+			return clip.y <= bottom && clip.y + clip.height >= top;
+		}
+		
+		/**
+		 * Method to draw the rows of the panel within the region to be repainted.
+		 * 
+		 * @param g
+		 * 			A Graphics object for drawing the panel.
+		 * 
+		 * @param clip
+		 * 			The region to be repainted, or null for the whole panel.
+		 */
+		private void paintRows(Graphics g, Rectangle clip) {
 			g.setColor(Color.WHITE);
 			g.setFont(new Font("Verdana", 1, 15));
-			g.drawImage(background, 0, 0, bigTwoPanel.getWidth(), bigTwoPanel.getHeight(), this);
+			images.validate(getWidth(), getHeight(), getGraphicsConfiguration());
+			images.drawBackground(g);
 			for (int i = 0; i < 4; i++) {
+				if (!inClip(clip, i)) {
+					continue;
+				}
 				String str = null;
 				if (game.getPlayerList().get(i).getName() == "" || game.getPlayerList().get(i).getName() == null) {
 					str = "";
@@ -333,31 +427,34 @@ public class BigTwoTable implements CardGameTable {
 			}
 			g.drawString(lastHand, 20, getHeight() * 4 / 5 + 20);
 			for (int i = 0; i < 4; i++) {
-				if (game.getPlayerList().get(i).getName() != "") {
-					g.drawImage(avatars[i], 10, getHeight() * i / 5 + 30, getHeight() / 7, getHeight() / 7, this);
+				if (game.getPlayerList().get(i).getName() != "" && inClip(clip, i)) {
+					images.drawAvatar(g, i, 10, getHeight() * i / 5 + 30);
 					if (i == game.getCurrentIdx()) {
-						g.drawImage(star, 80, getHeight() * i / 5 + 5, getHeight() / 27, getHeight() / 27, this);
+						images.drawStar(g, 80, getHeight() * i / 5 + 5);
 					}
 				}
 			}
 			for (int i = 0; i < 5; i++) {
+				if (!inClip(clip, i)) {
+					continue;
+				}
 				if (i == 4) {
 					if (game.getHandsOnTable().size() > 0) {
 						for (int j = 0; j < game.getHandsOnTable().get(game.getHandsOnTable().size() - 1).size(); j++) {
-							g.drawImage(cardImages[game.getHandsOnTable().get(game.getHandsOnTable().size() - 1).getCard(j).getRank()][game.getHandsOnTable().get(game.getHandsOnTable().size() - 1).getCard(j).getSuit()], (j + 3) * getWidth() / 18, getHeight() * i / 5 + 30, getHeight() / 9, getHeight() / 7, this);
+							images.drawCard(g, game.getHandsOnTable().get(game.getHandsOnTable().size() - 1).getCard(j), (j + 3) * getWidth() / 18, getHeight() * i / 5 + 30);
 						}
 					}	
 				} else if (i == ((BigTwoClient) game).getPlayerID() || game.endOfGame()) {
 					for (int j = 0; j < game.getPlayerList().get(i).getCardsInHand().size(); j++) {
 						if (!selected[j]) {
-							g.drawImage(cardImages[game.getPlayerList().get(i).getCardsInHand().getCard(j).getRank()][game.getPlayerList().get(i).getCardsInHand().getCard(j).getSuit()], (j + 3) * getWidth() / 18, getHeight() * i / 5 + 30, getHeight() / 9, getHeight() / 7, this);
+							images.drawCard(g, game.getPlayerList().get(i).getCardsInHand().getCard(j), (j + 3) * getWidth() / 18, getHeight() * i / 5 + 30);
 						} else {
-							g.drawImage(cardImages[game.getPlayerList().get(i).getCardsInHand().getCard(j).getRank()][game.getPlayerList().get(i).getCardsInHand().getCard(j).getSuit()], (j + 3) * getWidth() / 18, getHeight() * i / 5 + 10, getHeight() / 9, getHeight() / 7, this);
+							images.drawCard(g, game.getPlayerList().get(i).getCardsInHand().getCard(j), (j + 3) * getWidth() / 18, getHeight() * i / 5 + 10);
 						}
 					}
 				} else {
 					for (int j = 0; j < game.getPlayerList().get(i).getCardsInHand().size(); j++) {
-						g.drawImage(cardBackImage, (j + 3) * getWidth() / 18, getHeight() * i / 5 + 30, getHeight() / 9, getHeight() / 7, this);
+						images.drawCardBack(g, (j + 3) * getWidth() / 18, getHeight() * i / 5 + 30);
 					}
 				}
 			}
@@ -378,7 +475,7 @@ public class BigTwoTable implements CardGameTable {
 				if (checkMouseLocation(e.getX(), e.getY()) != -1) {
 					selected[checkMouseLocation(e.getX(), e.getY())] = !selected[checkMouseLocation(e.getX(), e.getY())];	
 				}
-				BigTwoTable.this.repaint();
+				repaintPlayer(activePlayer);
 			}	
 		}
 
@@ -521,7 +618,7 @@ public class BigTwoTable implements CardGameTable {
 				printMsg("This is not your turn!\n");
 			} else {
 				resetSelected();
-				repaint();
+				repaintPlayer(activePlayer);
 				game.makeMove(activePlayer, getSelected());
 			}	
 		}
@@ -550,6 +647,30 @@ public class BigTwoTable implements CardGameTable {
 		}
 	}
 	
+	/**
+	 * This class handles the action event when the paint stats item in menu is clicked, it implements
+	 * ActionListener interface.
+	 * 
+	 * @author Li Gengyu
+	 *
+	 */
+	class StatsMenuItemListener implements ActionListener {
+
+		/**
+		 * This method handle the action event when the paint stats item in menu is clicked, it prints the
+		 * statistics of the paints since they were last shown to the message area.
+		 * 
+		 * @param e
+		 * 			Action event that the the paint stats item in menu is clicked.
+		 * 
+		 * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+		 */
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			printMsg("Paints: " + getPaintStats() + "\n");
+		}
+	}
+	
 	/**
 	 * This class handle the action event when the quit item in menu is clicked, it 
 	 * implements ActionListener interface.
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class encodes and decodes messages in a compact binary layout, an alternative to Java serialization for
+ * the payload of a frame (see MessageFrames). A payload is a type byte and a player byte followed by the data of
+ * the message in a layout fixed by its type:
+ * <ul>
+ * <li>PLAYER_LIST: a count byte and that many strings.</li>
+ * <li>JOIN, QUIT, MSG, SESSION and RESUME: one string.</li>
+ * <li>FULL and READY: nothing.</li>
+ * <li>START: a count byte and the Big Two ordinal of every card of the deck, in order.</li>
+ * <li>MOVE: a count byte and the index of every card played, or 0xFF for no array.</li>
+ * <li>SNAPSHOT: an unsigned 2-byte length, or 0xFFFF for no array, followed by the bytes of the snapshot.</li>
+ * </ul>
+ * A string is an unsigned 2-byte length, or 0xFFFF for null, followed by its UTF-8 bytes. No class descriptor is
+ * written, so a START takes 55 bytes and a MOVE of five cards 8 bytes. The type byte is never 0xAC, the first
+ * byte of a serialized payload, so the two layouts can be told apart frame by frame.
+ *
+ * @author Li Gengyu
+ *
+ */
+public final class BinaryMessageCodec {
+
+	private static final int NULL_STRING = 0xFFFF; // The length marking a null string
+	private static final int NULL_ARRAY = 0xFF; // The count marking a null array
+
+	/**
+	 * This class only has static methods.
+	 */
+	private BinaryMessageCodec() {
+	}
+
+	/**
+	 * Method to encode a message.
+	 *
+	 * @param message
+	 * 				The message to be encoded.
+	 *
+	 * @return
+	 * 			The payload of the message.
+	 *
+	 * @throws IOException
+	 * 				If the message has no binary layout or does not fit it.
+	 */
+	public static byte[] encode(GameMessage message) throws IOException {
+		int type = message.getType();
+		int playerID = message.getPlayerID();
+		if (playerID < -1 || playerID > Byte.MAX_VALUE) {
+			throw new IOException("Player ID out of range: " + playerID);
+		}
+		Object data = message.getData();
+		ByteBuffer out;
+		switch (type) {
+		case CardGameMessage.PLAYER_LIST:
+			String[] names = (String[]) data;
+			if (names.length >= NULL_ARRAY) {
+				throw new IOException("Too many players: " + names.length);
+			}
+			byte[][] encodedNames = new byte[names.length][];
+			int size = 3;
+			for (int i = 0; i < names.length; i++) {
+				encodedNames[i] = encodeString(names[i]);
+				size += 2 + (encodedNames[i] == null ? 0 : encodedNames[i].length);
+			}
+			out = header(type, playerID, size);
+			out.put((byte) names.length);
+			for (int i = 0; i < names.length; i++) {
+				putString(out, encodedNames[i]);
+			}
+			break;
+		case CardGameMessage.JOIN:
+		case CardGameMessage.QUIT:
+		case CardGameMessage.MSG:
+		case CardGameMessage.SESSION:
+		case CardGameMessage.RESUME:
+			byte[] text = encodeString((String) data);
+			out = header(type, playerID, 4 + (text == null ? 0 : text.length));
+			putString(out, text);
+			break;
+		case CardGameMessage.FULL:
+		case CardGameMessage.READY:
+			out = header(type, playerID, 2);
+			break;
+		case CardGameMessage.START:
+			Deck deck = (Deck) data;
+			out = header(type, playerID, 3 + deck.size());
+			out.put((byte) deck.size());
+			for (int i = 0; i < deck.size(); i++) {
+				out.put((byte) BigTwoCard.ordinalOf(deck.getCard(i)));
+			}
+			break;
+		case CardGameMessage.MOVE:
+			int[] cardIdx = (int[]) data;
+			if (cardIdx == null) {
+				out = header(type, playerID, 3);
+				out.put((byte) NULL_ARRAY);
+				break;
+			}
+			if (cardIdx.length >= NULL_ARRAY) {
+				throw new IOException("Too many cards in a move: " + cardIdx.length);
+			}
+			out = header(type, playerID, 3 + cardIdx.length);
+			out.put((byte) cardIdx.length);
+			for (int i = 0; i < cardIdx.length; i++) {
+				if (cardIdx[i] < 0 || cardIdx[i] > 0xFF) {
+					throw new IOException("Card index out of range: " + cardIdx[i]);
+				}
+				out.put((byte) cardIdx[i]);
+			}
+			break;
+		case CardGameMessage.SNAPSHOT:
+			byte[] snapshot = (byte[]) data;
+			if (snapshot != null && snapshot.length >= NULL_STRING) {
+				throw new IOException("Snapshot too long: " + snapshot.length + " bytes");
+			}
+			out = header(type, playerID, 4 + (snapshot == null ? 0 : snapshot.length));
+			putString(out, snapshot);
+			break;
+		default:
+			throw new IOException("No binary layout for message type " + type);
+		}
+		return out.array();
+	}
+
+	/**
+	 * Method to decode a payload. A START is decoded into a BigTwoDeck.
+	 *
+	 * @param payload
+	 * 				A buffer whose remaining bytes are exactly the payload of one message; they are consumed.
+	 *
+	 * @return
+	 * 			The message of the payload.
+	 *
+	 * @throws StreamCorruptedException
+	 * 				If the payload does not follow the layout of its type.
+	 */
+	public static CardGameMessage decode(ByteBuffer payload) throws StreamCorruptedException {
+		try {
+			int type = payload.get();
+			int playerID = payload.get();
+			Object data;
+			switch (type) {
+			case CardGameMessage.PLAYER_LIST:
+				String[] names = new String[payload.get() & 0xFF];
+				for (int i = 0; i < names.length; i++) {
+					names[i] = getString(payload);
+				}
+				data = names;
+				break;
+			case CardGameMessage.JOIN:
+			case CardGameMessage.QUIT:
+			case CardGameMessage.MSG:
+			case CardGameMessage.SESSION:
+			case CardGameMessage.RESUME:
+				data = getString(payload);
+				break;
+			case CardGameMessage.FULL:
+			case CardGameMessage.READY:
+				data = null;
+				break;
+			case CardGameMessage.START:
+				int numOfCards = payload.get() & 0xFF;
+				BigTwoDeck deck = new BigTwoDeck();
+				deck.removeAllCards();
+				for (int i = 0; i < numOfCards; i++) {
+					int ordinal = payload.get();
+					if (ordinal < 0 || ordinal >= CardSet.NUM_OF_CARDS) {
+						throw new StreamCorruptedException("Invalid card ordinal: " + ordinal);
+					}
+					deck.addCard(BigTwoCard.fromOrdinal(ordinal));
+				}
+				data = deck;
+				break;
+			case CardGameMessage.MOVE:
+				int count = payload.get() & 0xFF;
+				if (count == NULL_ARRAY) {
+					data = null;
+					break;
+				}
+				int[] cardIdx = new int[count];
+				for (int i = 0; i < count; i++) {
+					cardIdx[i] = payload.get() & 0xFF;
+				}
+				data = cardIdx;
+				break;
+			case CardGameMessage.SNAPSHOT:
+				data = getBytes(payload);
+				break;
+			default:
+				throw new StreamCorruptedException("Invalid message type: " + type);
+			}
+			if (payload.hasRemaining()) {
+				throw new StreamCorruptedException(payload.remaining() + " bytes left after a message");
+			}
+			return new CardGameMessage(type, playerID, data);
+		} catch (BufferUnderflowException ex) {
+			throw new StreamCorruptedException("Truncated message");
+		}
+	}
+
+	/**
+	 * Method to allocate the buffer of a payload and put the type and the player into it.
+	 *
+	 * @param type
+	 * 				The type of the message.
+	 *
+	 * @param playerID
+	 * 				The playerID of the message.
+	 *
+	 * @param size
+	 * 				The size of the whole payload.
+	 *
+	 * @return
+	 * 			A buffer of the size of the payload, positioned after the player.
+	 */
+	private static ByteBuffer header(int type, int playerID, int size) {
+		ByteBuffer out = ByteBuffer.allocate(size);
+		out.put((byte) type);
+		out.put((byte) playerID);
+		return out;
+	}
+
+	/**
+	 * Method to encode a string into UTF-8.
+	 *
+	 * @param s
+	 * 				The string, possibly null.
+	 *
+	 * @return
+	 * 			The UTF-8 bytes of the string, or null for a null string.
+	 *
+	 * @throws IOException
+	 * 				If the string is too long for its 2-byte length.
+	 */
+	private static byte[] encodeString(String s) throws IOException {
+		if (s == null) {
+			return null;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length >= NULL_STRING) {
+			throw new IOException("String too long: " + bytes.length + " bytes");
+		}
+		return bytes;
+	}
+
+	/**
+	 * Method to put an encoded string, or any array of bytes, with its length.
+	 *
+	 * @param out
+	 * 				The buffer of the payload.
+	 *
+	 * @param bytes
+	 * 				The UTF-8 bytes of the string, or null for a null string.
+	 */
+	private static void putString(ByteBuffer out, byte[] bytes) {
+		if (bytes == null) {
+			out.putShort((short) NULL_STRING);
+		} else {
+			out.putShort((short) bytes.length);
+			out.put(bytes);
+		}
+	}
+
+	/**
+	 * Method to get a string with its length.
+	 *
+	 * @param payload
+	 * 				The buffer of the payload.
+	 *
+	 * @return
+	 * 			The string, possibly null.
+	 */
+	private static String getString(ByteBuffer payload) {
+		byte[] bytes = getBytes(payload);
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Method to get an array of bytes with its length.
+	 *
+	 * @param payload
+	 * 				The buffer of the payload.
+	 *
+	 * @return
+	 * 			The bytes, or null for no array.
+	 */
+	private static byte[] getBytes(ByteBuffer payload) {
+		int length = payload.getShort() & 0xFFFF;
+		if (length == NULL_STRING) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		payload.get(bytes);
+		return bytes;
+	}
+}
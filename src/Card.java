@@ -1,3 +1,5 @@
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 /**
@@ -13,6 +15,16 @@ public class Card implements Comparable<Card>, Serializable {
 	private static final char[] RANKS = { 'A', '2', '3', '4', '5', '6', '7',
 			'8', '9', '0', 'J', 'Q', 'K' };
 
+	private static final Card[] CARDS = new Card[52]; // the shared instances
+
+	static {
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 13; j++) {
+				CARDS[i * 13 + j] = new Card(i, j);
+			}
+		}
+	}
+
 	protected final int suit; // 0 - 3
 	protected final int rank; // 0 - 12
 
@@ -34,6 +46,56 @@ public class Card implements Comparable<Card>, Serializable {
 		this.rank = rank;
 	}
 
+	/**
+	 * Returns the shared instance of the card with the specified suit and rank.
+	 * Cards are immutable, so the same 52 instances can be used by every deck
+	 * instead of creating new ones.
+	 * 
+	 * @param suit
+	 *            an int value between 0 and 3 representing the suit of a card
+	 * @param rank
+	 *            an int value between 0 and 12 representing the rank of a card
+	 * @return the shared instance of the card
+	 * @throws IllegalArgumentException
+	 *             if the suit or the rank is out of range
+	 */
+	public static Card of(int suit, int rank) {
+		checkSuitAndRank(suit, rank);
+		return CARDS[suit * 13 + rank];
+	}
+
+	/**
+	 * Checks whether the specified suit and rank are those of a card.
+	 * 
+	 * @param suit
+	 *            the suit of a card
+	 * @param rank
+	 *            the rank of a card
+	 * @return true if the suit is between 0 and 3 and the rank between 0 and
+	 *         12
+	 */
+	static boolean isValid(int suit, int rank) {
+		return suit >= 0 && suit < 4 && rank >= 0 && rank < 13;
+	}
+
+	/**
+	 * Checks the specified suit and rank before they are used to look up a
+	 * shared card, so that a bad one is not taken for another card.
+	 * 
+	 * @param suit
+	 *            the suit of a card
+	 * @param rank
+	 *            the rank of a card
+	 * @throws IllegalArgumentException
+	 *             if the suit or the rank is out of range
+	 */
+	static void checkSuitAndRank(int suit, int rank) {
+		if (!isValid(suit, rank)) {
+			throw new IllegalArgumentException("Invalid card: suit " + suit
+					+ ", rank " + rank);
+		}
+	}
+
 	/**
 	 * Returns the suit of a card.
 	 * 
@@ -101,16 +163,40 @@ public class Card implements Comparable<Card>, Serializable {
 	 *         card; false otherwise
 	 */
 	public boolean equals(Object card) {
+		if (this == card) {
+			return true;
+		}
 		return (this.rank == ((Card) card).getRank() && suit == ((Card) card)
 				.getSuit());
 	}
 
 	/**
-	 * Returns a hash code value for the card.
+	 * Returns a hash code value for the card. Each of the 52 cards has its own
+	 * value, which is also consistent with equals() across subclasses.
 	 * 
 	 * @return a hash code value for the card
 	 */
 	public int hashCode() {
-		return rank;
+		return suit * 13 + rank;
+	}
+
+	/**
+	 * Replaces a deserialized card by the shared instance with the same suit
+	 * and rank. Subclasses keep their own instances unless they override this
+	 * method.
+	 * 
+	 * @return the shared instance of the card
+	 * @throws ObjectStreamException
+	 *             if the suit or the rank in the stream is out of range
+	 */
+	protected Object readResolve() throws ObjectStreamException {
+		if (!isValid(suit, rank)) {
+			throw new InvalidObjectException("Invalid card: suit " + suit
+					+ ", rank " + rank);
+		}
+		if (getClass() == Card.class) {
+			return of(suit, rank);
+		}
+		return this;
 	}
 }
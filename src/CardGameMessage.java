@@ -57,6 +57,26 @@ public class CardGameMessage extends GameMessage {
 	 * sent this chat message, and data is a reference to a string containing a formated chat message.
 	 */
 	public static final int MSG = 7;
+	/**
+	 * Sent by the server to a client when its player joins the game. In this
+	 * message, playerID specifies the player, and data is a string which the
+	 * client presents in a RESUME message to take its seat back after losing
+	 * the connection during a game.
+	 */
+	public static final int SESSION = 8;
+	/**
+	 * Sent by a client to the server, instead of JOIN, when it connects again
+	 * after losing the connection. In this message, playerID is -1 (not being
+	 * used), and data is the string received in the SESSION message.
+	 */
+	public static final int RESUME = 9;
+	/**
+	 * Sent by the server to a client in answer to a RESUME message. In this
+	 * message, playerID specifies the seat taken back, or is -1 if the session
+	 * is over and the client must join as a new player, and data is a byte
+	 * array holding the game in progress (see BigTwoSnapshot), or null.
+	 */
+	public static final int SNAPSHOT = 10;
 
 	/**
 	 * Creates and returns an instance of CardGameMessage.
@@ -0,0 +1,644 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is used to model a room of a card game server, i.e. one table
+ * with its own player slots, ready states and deck. The state of a room is
+ * confined to a SerialExecutor of its own: the connections entering and
+ * leaving and the messages received are handled one at a time, in order, by
+ * tasks of that executor, so no lock is needed and the rooms of a server
+ * never wait for each other. Sending a message only queues it on the
+ * connection, so a client which is slow to read does not hold up the room.
+ * <p>
+ * The room follows the game from the START and MOVE messages it relays. A
+ * player who loses the connection during a game keeps the seat for the grace
+ * period of the server: a client which connects again and presents the
+ * session token of the player within that time takes the seat back and gets
+ * a snapshot of the game, while the others wait for it.
+ *
+ * @author Kenneth Wong
+ *
+ */
+public class CardGameRoom {
+	// The server hosting this room
+	private final CardGameServer server;
+	// The index of this room in the server
+	private final int roomID;
+	// The maximum number of players in a card game
+	private final int maxNumOfPlayers;
+	// Array for holding connections to the clients
+	private ClientConnection[] clientConnections;
+	// Array for holding player names of the clients
+	private String[] clientNames;
+	// Array for holding ready states of the clients
+	private boolean[] clientReadyStates;
+	// Array for holding session tokens of the players who have joined
+	private String[] sessionTokens;
+	// Array for holding the seats kept for players who lost the connection
+	private KeptSeat[] keptSeats;
+	// number of current players, including those whose seat is kept
+	private int numOfPlayers = 0;
+	// number of seats taken, counted by the lobby when it seats a connection
+	private final AtomicInteger numOfSeatsTaken = new AtomicInteger();
+	// executor handling the connections and messages of this room in order
+	private final SerialExecutor executor;
+	// the game being played in this room, followed from the messages relayed
+	private final BigTwoState game = new BigTwoState();
+	// whether a game is being played
+	private boolean gameInProgress = false;
+
+	/**
+	 * Creates and returns an instance of the CardGameRoom class.
+	 *
+	 * @param server
+	 *            the server hosting this room
+	 * @param roomID
+	 *            the index of this room in the server
+	 * @param maxNumOfPlayers
+	 *            the maximum number of players in a card game
+	 * @param executor
+	 *            the executor, shared by the rooms, on which the tasks of this
+	 *            room run
+	 */
+	public CardGameRoom(CardGameServer server, int roomID, int maxNumOfPlayers,
+			Executor executor) {
+		this.server = server;
+		this.roomID = roomID;
+		this.maxNumOfPlayers = maxNumOfPlayers;
+		this.executor = new SerialExecutor(executor);
+
+		// creates arrays for holding client connections, player names, ready
+		// states, session tokens and kept seats
+		clientConnections = new ClientConnection[maxNumOfPlayers];
+		clientNames = new String[maxNumOfPlayers];
+		clientReadyStates = new boolean[maxNumOfPlayers];
+		sessionTokens = new String[maxNumOfPlayers];
+		keptSeats = new KeptSeat[maxNumOfPlayers];
+	}
+
+	/**
+	 * Returns the index of this room in the server.
+	 *
+	 * @return the index of this room
+	 */
+	public int getRoomID() {
+		return roomID;
+	}
+
+	/**
+	 * Returns the number of players in this room, including those whose
+	 * connection is still being added and those whose seat is kept.
+	 *
+	 * @return the number of players in this room
+	 */
+	public int getNumOfPlayers() {
+		return numOfSeatsTaken.get();
+	}
+
+	/**
+	 * Seats the specified connection in this room if a seat is free. The
+	 * connection is then added by a task of this room.
+	 *
+	 * @param connection
+	 *            the connection to be seated
+	 * @return true if the connection has been seated, or false if this room
+	 *         is full
+	 */
+	boolean enter(final ClientConnection connection) {
+		int seats;
+		do {
+			seats = numOfSeatsTaken.get();
+			if (seats >= maxNumOfPlayers) {
+				return false;
+			}
+		} while (!numOfSeatsTaken.compareAndSet(seats, seats + 1));
+		executor.execute(new Runnable() {
+			public void run() {
+				addConnection(connection);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Removes the specified connection from this room by a task of this room,
+	 * which frees its seat, or keeps it if the player loses the connection
+	 * during a game. The seat is freed by the task, so a connection seated
+	 * later is added after this one has been removed.
+	 *
+	 * @param connection
+	 *            the connection leaving this room
+	 */
+	void leave(final ClientConnection connection) {
+		executor.execute(new Runnable() {
+			public void run() {
+				removeConnection(connection, true);
+			}
+		});
+	}
+
+	/**
+	 * Removes the specified connection, whose client resumes a session in
+	 * another seat, from this room by a task of this room. As the client has
+	 * not joined the game here, the other players are not told.
+	 *
+	 * @param connection
+	 *            the connection leaving this room
+	 */
+	void withdraw(final ClientConnection connection) {
+		executor.execute(new Runnable() {
+			public void run() {
+				removeConnection(connection, false);
+			}
+		});
+	}
+
+	/**
+	 * Gives the seat kept for the session of the specified token to the
+	 * specified connection, by a task of this room. The server is told if the
+	 * seat is no longer kept.
+	 *
+	 * @param connection
+	 *            the connection of the client taking the seat back
+	 * @param token
+	 *            the session token presented by the client
+	 */
+	void resume(final ClientConnection connection, final String token) {
+		executor.execute(new Runnable() {
+			public void run() {
+				resumeSession(connection, token);
+			}
+		});
+	}
+
+	/**
+	 * Handles the incoming message from the specified client by a task of
+	 * this room.
+	 *
+	 * @param connection
+	 *            the connection to the specified client
+	 * @param message
+	 *            the message received from the specified client
+	 */
+	void receive(final ClientConnection connection,
+			final CardGameMessage message) {
+		executor.execute(new Runnable() {
+			public void run() {
+				parseMessage(connection, message);
+			}
+		});
+	}
+
+	/**
+	 * Parses the incoming message from the specified client.
+	 *
+	 * @param connection
+	 *            the connection to the specified client
+	 * @param message
+	 *            the message received from the specified client
+	 */
+	private void parseMessage(ClientConnection connection,
+			CardGameMessage message) {
+		// updates the playerID
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			if (clientConnections[i] == connection) {
+				message.setPlayerID(i);
+				break;
+			}
+		}
+
+		// parses the message based on it type
+		switch (message.getType()) {
+		case CardGameMessage.JOIN:
+			// adds a player to the game
+			addPlayer(connection, (String) message.getData());
+			break;
+		case CardGameMessage.READY:
+			// marks the specified player as ready for a new game
+			setReadyState(connection);
+			break;
+		case CardGameMessage.MOVE:
+			// follows the game, which the clients check for themselves
+			if (gameInProgress && (message.getData() == null
+					|| message.getData() instanceof int[])) {
+				followMove(message.getPlayerID(), (int[]) message.getData());
+			}
+			println("Broadcasts a \"MOVE\" message from "
+					+ connection.getRemoteSocketAddress());
+			// broadcast the MOVE message to all clients
+			broadcastMessage(message);
+			break;
+		case CardGameMessage.MSG:
+			println("Broadcasts a user message from "
+					+ connection.getRemoteSocketAddress());
+			// broadcast the user message to all clients
+			broadcastUserMessage(connection, (String) message.getData());
+			break;
+		default:
+			println("Wrong message type: " + message.getType());
+			// invalid message
+			break;
+		}
+	} // parseMessage
+
+	/**
+	 * Broadcasts the specified message to all clients in this room. The
+	 * message is wrapped once, so it is encoded once for all the clients.
+	 *
+	 * @param message
+	 *            the specified message to be broadcast to all clients
+	 */
+	private void broadcastMessage(CardGameMessage message) {
+		if (numOfPlayers > 0) {
+			OutboundMessage outbound = new OutboundMessage(message);
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clientConnections[i] != null) {
+					try {
+						clientConnections[i].send(outbound);
+					} catch (Exception ex) {
+						println("Error in broadcasting a message to the client at "
+								+ clientConnections[i].getRemoteSocketAddress());
+						ex.printStackTrace();
+					}
+				}
+			}
+		}
+	} // broadcastMessage
+
+	/**
+	 * Sends the specified message to one client.
+	 *
+	 * @param connection
+	 *            the connection to the client
+	 * @param message
+	 *            the message to be sent
+	 */
+	private void sendMessage(ClientConnection connection,
+			CardGameMessage message) {
+		try {
+			connection.send(new OutboundMessage(message));
+		} catch (Exception ex) {
+			println("Error in sending a message to the client at "
+					+ connection.getRemoteSocketAddress());
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Adds a new connection to this room, in which a seat has been taken for
+	 * it.
+	 *
+	 * @param connection
+	 *            the connection to be added to this room
+	 */
+	private void addConnection(ClientConnection connection) {
+		// locates the first empty slot, not kept for a player, for the new
+		// connection
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			if (clientConnections[i] == null && keptSeats[i] == null) {
+				clientConnections[i] = connection;
+				clientNames[i] = null;
+				clientReadyStates[i] = false;
+				numOfPlayers++;
+				println("Establishes a connection with a client at "
+						+ connection.getRemoteSocketAddress());
+
+				// sends the player list to the new player, copied as it is
+				// written after the room has moved on
+				sendMessage(connection, new CardGameMessage(
+						CardGameMessage.PLAYER_LIST, i, clientNames.clone()));
+				break;
+			}
+		} // for
+	} // addConnection
+
+	/**
+	 * Removes a connection from this room (possibly due to connection loss).
+	 * The seat of a player who loses the connection during a game is kept
+	 * for the grace period of the server rather than freed.
+	 *
+	 * @param connection
+	 *            the connection being removed from this room
+	 * @param tellPlayers
+	 *            true to tell the other players, or false if the client has
+	 *            not joined and resumes a session elsewhere
+	 */
+	private void removeConnection(ClientConnection connection,
+			boolean tellPlayers) {
+		// locates the client connection in the array
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			if (clientConnections[i] == connection) {
+				String name = clientNames[i];
+				clientConnections[i] = null;
+
+				if (tellPlayers && gameInProgress && sessionTokens[i] != null
+						&& server.getGracePeriod() > 0) {
+					keepSeat(i, connection);
+					return;
+				}
+
+				println(name + " (" + connection.getRemoteSocketAddress()
+						+ ") leaves the game.");
+				freeSeat(i, connection.getRemoteSocketAddress().toString(),
+						tellPlayers);
+				return;
+			}
+		}
+		// the connection was never added, so only its seat is freed
+		numOfSeatsTaken.decrementAndGet();
+		server.seatFreed(this);
+	} // removeConnection
+
+	/**
+	 * Frees a seat, ending the session of its player.
+	 *
+	 * @param i
+	 *            the index of the seat
+	 * @param remoteAddress
+	 *            the address of the player, sent to the other players
+	 * @param tellPlayers
+	 *            true to broadcast a message about the leaving of the player
+	 */
+	private void freeSeat(int i, String remoteAddress, boolean tellPlayers) {
+		if (sessionTokens[i] != null) {
+			server.endSession(sessionTokens[i]);
+			sessionTokens[i] = null;
+		}
+		clientNames[i] = null;
+		clientReadyStates[i] = false;
+		numOfPlayers--;
+		// the clients stop the game when a player leaves
+		boolean aborted = tellPlayers && gameInProgress;
+		if (aborted) {
+			game.reset();
+			gameInProgress = false;
+		}
+		if (tellPlayers) {
+			// broadcasts a message about the leaving of this player
+			broadcastMessage(new CardGameMessage(CardGameMessage.QUIT, i,
+					remoteAddress));
+		}
+		numOfSeatsTaken.decrementAndGet();
+		server.seatFreed(this);
+		if (aborted) {
+			// there is no game left to resume for the others
+			for (int j = 0; j < maxNumOfPlayers; j++) {
+				if (keptSeats[j] != null) {
+					expireSeat(j, keptSeats[j]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps the seat of a player who has lost the connection during a game,
+	 * and frees it at the end of the grace period of the server unless the
+	 * player has taken it back.
+	 *
+	 * @param i
+	 *            the index of the seat
+	 * @param connection
+	 *            the connection which has been lost
+	 */
+	private void keepSeat(final int i, ClientConnection connection) {
+		final KeptSeat seat = new KeptSeat(sessionTokens[i], connection
+				.getRemoteSocketAddress().toString());
+		keptSeats[i] = seat;
+		server.seatKept();
+		long grace = server.getGracePeriod();
+		println(clientNames[i] + " (" + seat.remoteAddress
+				+ ") loses the connection, the seat is kept for " + grace
+				+ " ms.");
+		broadcastMessage(new CardGameMessage(CardGameMessage.MSG, i,
+				clientNames[i] + " lost the connection. Waiting " + grace
+						/ 1000 + " seconds for the player to come back."));
+		server.getScheduler().schedule(new Runnable() {
+			public void run() {
+				executor.execute(new Runnable() {
+					public void run() {
+						expireSeat(i, seat);
+					}
+				});
+			}
+		}, grace, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Frees a kept seat at the end of the grace period, if the player has not
+	 * taken it back.
+	 *
+	 * @param i
+	 *            the index of the seat
+	 * @param seat
+	 *            the seat kept when the connection was lost
+	 */
+	private void expireSeat(int i, KeptSeat seat) {
+		if (keptSeats[i] != seat) {
+			return;
+		}
+		keptSeats[i] = null;
+		server.seatReleased();
+		println(clientNames[i] + " (" + seat.remoteAddress
+				+ ") has not come back and leaves the game.");
+		freeSeat(i, seat.remoteAddress, true);
+	}
+
+	/**
+	 * Gives a kept seat back to a player who connects again, and sends the
+	 * player the list of players and a snapshot of the game.
+	 *
+	 * @param connection
+	 *            the new connection of the player
+	 * @param token
+	 *            the session token presented by the client
+	 */
+	private void resumeSession(ClientConnection connection, String token) {
+		for (int i = 0; i < maxNumOfPlayers; i++) {
+			KeptSeat seat = keptSeats[i];
+			if (seat != null && seat.token.equals(token)) {
+				keptSeats[i] = null;
+				server.seatReleased();
+				clientConnections[i] = connection;
+
+				long offlineMillis = (System.nanoTime() - seat.lostAt) / 1000000L;
+				byte[] snapshot = BigTwoSnapshot.encode(game);
+				sendMessage(connection, new CardGameMessage(
+						CardGameMessage.PLAYER_LIST, i, clientNames.clone()));
+				sendMessage(connection, new CardGameMessage(
+						CardGameMessage.SNAPSHOT, i, snapshot));
+				println(clientNames[i] + " ("
+						+ connection.getRemoteSocketAddress()
+						+ ") resumes the game after " + offlineMillis
+						+ " ms offline, with a snapshot of " + snapshot.length
+						+ " bytes.");
+				broadcastMessage(new CardGameMessage(CardGameMessage.MSG, i,
+						clientNames[i] + " is back."));
+				return;
+			}
+		}
+		// the seat has been freed in the meantime
+		server.resumeFailed(connection);
+	}
+
+	/**
+	 * adds a player to the game, and sends the player a session token.
+	 *
+	 * @param connection
+	 *            the connection to the player who is joining the game
+	 * @param name
+	 *            the name of the player who is joining the game
+	 */
+	private void addPlayer(ClientConnection connection, String name) {
+		if (numOfPlayers > 0) {
+			// locates the client connection in the array
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clientConnections[i] == connection) {
+					// updates the name of the new player
+					clientNames[i] = name;
+
+					println(name + " (" + connection.getRemoteSocketAddress()
+							+ ") joins the game.");
+
+					// broadcasts a message about this player joining the game
+					broadcastMessage(new CardGameMessage(CardGameMessage.JOIN,
+							i, name));
+
+					// opens a session, by which the player can take the seat
+					// back after losing the connection
+					if (sessionTokens[i] == null) {
+						sessionTokens[i] = server.startSession(this);
+					}
+					sendMessage(connection, new CardGameMessage(
+							CardGameMessage.SESSION, i, sessionTokens[i]));
+					break;
+				}
+			}
+		}
+	} // addPlayer
+
+	/**
+	 * Marks the specified player as ready for a new game.
+	 *
+	 * @param connection
+	 *            the connection to the player who becomes ready for a new
+	 *            game
+	 */
+	private void setReadyState(ClientConnection connection) {
+		if (numOfPlayers > 0) {
+			// locates the client connection in the array
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clientConnections[i] == connection) {
+					clientReadyStates[i] = true;
+					println(clientNames[i] + " ("
+							+ connection.getRemoteSocketAddress()
+							+ " ) is ready for the next game.");
+					broadcastMessage(new CardGameMessage(CardGameMessage.READY,
+							i, null));
+					break;
+				}
+			}
+		}
+
+		// checks if all players are ready
+		if (numOfPlayers == maxNumOfPlayers) {
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clientReadyStates[i] == false) {
+					// returns if any of the players is not ready
+					return;
+				}
+			}
+
+			// resets the ready states of all the players for the next game
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				clientReadyStates[i] = false;
+			}
+
+			// creates a new deck, shuffles the deck, and starts a new game
+			Deck deck = server.createDeck();
+			deck.shuffle();
+			println("All players are ready. Game starts.");
+			if (maxNumOfPlayers == BigTwoState.NUM_OF_PLAYERS) {
+				game.start(deck);
+				gameInProgress = true;
+			}
+			broadcastMessage(new CardGameMessage(CardGameMessage.START, -1,
+					deck));
+		}
+	}
+
+	/**
+	 * Follows a move relayed to the players, so that the game can be resumed.
+	 * An illegal move does not change the game, as the clients ignore it.
+	 *
+	 * @param playerID
+	 *            the player making the move
+	 * @param cardIdx
+	 *            the indices of the cards played, or null for a pass
+	 */
+	private void followMove(int playerID, int[] cardIdx) {
+		MoveResult result = BigTwoRules.checkMove(game, playerID, cardIdx);
+		if (result.isLegal()) {
+			game.makeMove(result);
+			if (result.getStatus() == MoveResult.Status.GAME_OVER) {
+				gameInProgress = false;
+			}
+		}
+	}
+
+	private void broadcastUserMessage(ClientConnection connection,
+			String msg) {
+		if (numOfPlayers > 0) {
+			// locates the client in the array
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clientConnections[i] == connection) {
+					String longMsg = clientNames[i] + " ("
+							+ connection.getRemoteSocketAddress() + "): "
+							+ msg;
+					broadcastMessage(new CardGameMessage(CardGameMessage.MSG,
+							i, longMsg));
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints the specified message to the text area of the server, marked
+	 * with the index of this room.
+	 *
+	 * @param msg
+	 */
+	private void println(String msg) {
+		server.println("Room " + roomID + ": " + msg);
+	}
+
+	/**
+	 * This inner class is used to model a seat kept for a player who has lost
+	 * the connection during a game.
+	 *
+	 * @author Kenneth Wong
+	 *
+	 */
+	private static class KeptSeat {
+		// the session token of the player
+		private final String token;
+		// the address of the connection which has been lost
+		private final String remoteAddress;
+		// the time at which the connection was lost, in nanoseconds
+		private final long lostAt = System.nanoTime();
+
+		/**
+		 * Creates and returns an instance of the KeptSeat class.
+		 *
+		 * @param token
+		 *            the session token of the player
+		 * @param remoteAddress
+		 *            the address of the connection which has been lost
+		 */
+		KeptSeat(String token, String remoteAddress) {
+			this.token = token;
+			this.remoteAddress = remoteAddress;
+		}
+	}
+}
@@ -1,9 +1,25 @@
+import java.awt.GraphicsEnvironment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -20,26 +36,69 @@ import javax.swing.ScrollPaneConstants;
  *
  */
 public class CardGameServer {
+	/**
+	 * The time for which the seat of a player who lost the connection during
+	 * a game is kept, in milliseconds, unless configured otherwise.
+	 */
+	public static final long DEFAULT_GRACE_PERIOD = 30000;
+	// time for which a connection coming while the server is full may wait to
+	// resume a session, in milliseconds
+	private static final long WAITING_PERIOD = 5000;
+
 	// The name of this card game server
 	private String serverName;
 	// The maximum number of players in a card game
 	private final int maxNumOfPlayers;
-	// Array for holding sockets of the clients
-	private Socket[] clientSockets;
-	// Array for holding ObjectOutputStreams of the clients
-	private ObjectOutputStream[] clientOutputStreams;
-	// Array for holding player names of the clients
-	private String[] clientNames;
-	// Array for holding ready states of the clients
-	private boolean[] clientReadyStates;
-	// number of current players
-	private int numOfPlayers = 0;
+	// The maximum number of rooms, or 0 for no limit
+	private final int maxNumOfRooms;
+	// List of the rooms, each one hosting a card game; also the lock of the
+	// lobby which assigns the connections to the rooms
+	private final ArrayList<CardGameRoom> rooms = new ArrayList<CardGameRoom>();
+	// index of the first room which may have an empty slot
+	private int firstOpenRoom = 0;
+	// Map from the connections to the rooms they are in
+	private final ConcurrentHashMap<ClientConnection, CardGameRoom> roomOfConnection = new ConcurrentHashMap<ClientConnection, CardGameRoom>();
+	// Map from the session tokens of the players to the rooms they play in
+	private final ConcurrentHashMap<String, CardGameRoom> roomOfSession = new ConcurrentHashMap<String, CardGameRoom>();
+	// Connections which came while the server was full but a seat was kept,
+	// waiting for a while to resume a session
+	private final Set<ClientConnection> waitingConnections = ConcurrentHashMap
+			.newKeySet();
+	// number of seats kept for players who lost the connection
+	private final AtomicInteger numOfKeptSeats = new AtomicInteger();
+	// time for which the seat of a player who lost the connection during a
+	// game is kept, in milliseconds, or 0 to free it at once
+	private volatile long gracePeriodMillis = DEFAULT_GRACE_PERIOD;
+	// source of the session tokens
+	private final SecureRandom random = new SecureRandom();
 	// the main frame of the server
 	private JFrame frame = null;
 	// text area for displaying server states
 	private JTextArea textArea = null;
 	// a boolean indicating if the server is up
 	private boolean serverUp = false;
+	// executor running the handlers which receive messages from and write
+	// messages to the clients in blocking mode
+	private ExecutorService handlerExecutor = Executors.newCachedThreadPool();
+	// executor, shared by the rooms, running the tasks of the rooms
+	private final ExecutorService roomExecutor = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	// scheduler for delayed work, such as closing the connection to a client
+	// which has been told that the server is full
+	private final ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor();
+	// number of open connections, including those being closed
+	private final AtomicInteger numOfConnections = new AtomicInteger();
+	// policy applied to the clients which do not read their messages fast
+	// enough, and the depth of their outbound queues from which it applies
+	private volatile OutboundQueue.Policy queuePolicy = OutboundQueue.Policy.DROP_CHAT;
+	private volatile int queueThreshold = OutboundQueue.DEFAULT_THRESHOLD;
+	// numbers of messages and of bytes after which the ObjectOutputStream of
+	// a client in blocking mode is reset
+	private volatile int resetMessageBudget = SerializationChannel.DEFAULT_MESSAGE_BUDGET;
+	private volatile long resetByteBudget = SerializationChannel.DEFAULT_BYTE_BUDGET;
+	// whether Nagle's algorithm is disabled on the sockets of the clients
+	private volatile boolean tcpNoDelay = false;
 
 	/**
 	 * Creates and returns an instance of the BigTwoServer class.
@@ -50,17 +109,31 @@ public class CardGameServer {
 	 *            the maximum number of players in a card game
 	 */
 	public CardGameServer(String serverName, int maxNumOfPlayers) {
+		this(serverName, maxNumOfPlayers, 1);
+	}
+
+	/**
+	 * Creates and returns an instance of the CardGameServer class hosting
+	 * several card games, each one in a room of its own.
+	 * 
+	 * @param serverName
+	 *            the name of this card game server
+	 * @param maxNumOfPlayers
+	 *            the maximum number of players in a card game
+	 * @param maxNumOfRooms
+	 *            the maximum number of rooms, or 0 for no limit
+	 */
+	public CardGameServer(String serverName, int maxNumOfPlayers,
+			int maxNumOfRooms) {
 		this.serverName = serverName;
 		this.maxNumOfPlayers = maxNumOfPlayers;
+		this.maxNumOfRooms = maxNumOfRooms;
 
-		// creates arrays for holding client sockets, output streams, player
-		// names, and ready states
-		clientSockets = new Socket[maxNumOfPlayers];
-		clientOutputStreams = new ObjectOutputStream[maxNumOfPlayers];
-		clientNames = new String[maxNumOfPlayers];
-		clientReadyStates = new boolean[maxNumOfPlayers];
-
-		buildGUI();
+		// without a display, e.g. on a machine running a load test, the
+		// messages go to the standard output instead
+		if (!GraphicsEnvironment.isHeadless()) {
+			buildGUI();
+		}
 	}
 
 	/**
@@ -82,10 +155,13 @@ public class CardGameServer {
 		// build the menu bar
 		JMenuItem clearMenuItem = new JMenuItem("Clear console");
 		clearMenuItem.addActionListener(new ClearMenuItemListener());
+		JMenuItem statusMenuItem = new JMenuItem("Show status");
+		statusMenuItem.addActionListener(new StatusMenuItemListener());
 		JMenuItem quitMenuItem = new JMenuItem("Quit");
 		quitMenuItem.addActionListener(new QuitMenuItemListener());
 		JMenu menu = new JMenu("Option");
 		menu.add(clearMenuItem);
+		menu.add(statusMenuItem);
 		menu.add(quitMenuItem);
 		JMenuBar menuBar = new JMenuBar();
 		menuBar.add(menu);
@@ -112,7 +188,20 @@ public class CardGameServer {
 			while (serverUp) {
 				// waits for clients to connect
 				Socket clientSocket = serverSocket.accept();
-				addConnection(clientSocket);
+				SocketConnection connection;
+				try {
+					clientSocket.setTcpNoDelay(tcpNoDelay);
+					connection = new SocketConnection(this, clientSocket);
+				} catch (Exception ex) {
+					println("Error in establishing a connection with a client at "
+							+ clientSocket.getRemoteSocketAddress());
+					ex.printStackTrace();
+					continue;
+				}
+				if (addConnection(connection)) {
+					// runs a handler for receiving messages from this client
+					handlerExecutor.execute(new ClientHandler(connection));
+				}
 			} // while
 			serverSocket.close();
 		} catch (Exception ex) {
@@ -122,236 +211,614 @@ public class CardGameServer {
 	} // start
 
 	/**
-	 * Parses the incoming message from the specified client.
+	 * Starts the server at the specified port in non-blocking mode, in which
+	 * a fixed number of I/O threads serve all the clients and the messages use
+	 * the framed protocol (see MessageFrames).
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the specified client
-	 * @param message
-	 *            the message received from the specified client
+	 * @param port
+	 *            the specified port at which the server starts
+	 * @param numOfThreads
+	 *            the number of I/O threads
 	 */
-	private synchronized void parseMessage(Socket clientSocket,
-			CardGameMessage message) {
-		// updates the playerID
-		for (int i = 0; i < maxNumOfPlayers; i++) {
-			if (clientSockets[i] == clientSocket) {
-				message.setPlayerID(i);
-				break;
-			}
+	public void startNio(int port, int numOfThreads) {
+		// start the server
+		try {
+			// creates a ServerSocketChannel, which accepts in blocking mode
+			ServerSocketChannel serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(new InetSocketAddress(port));
+			NioServer nioServer = new NioServer(this, numOfThreads);
+			nioServer.start();
+			println("Starts up the server at localhost:"
+					+ serverChannel.socket().getLocalPort() + " with "
+					+ numOfThreads + " I/O threads");
+			serverUp = true;
+			while (serverUp) {
+				// waits for clients to connect
+				SocketChannel clientChannel = serverChannel.accept();
+				clientChannel.socket().setTcpNoDelay(tcpNoDelay);
+				nioServer.accept(clientChannel);
+			} // while
+			serverChannel.close();
+		} catch (Exception ex) {
+			println("Error in starting up the server at localhost:" + port);
+			ex.printStackTrace();
 		}
+	} // startNio
 
-		// parses the message based on it type
-		switch (message.getType()) {
-		case CardGameMessage.JOIN:
-			// adds a player to the game
-			addPlayer(clientSocket, (String) message.getData());
-			break;
-		case CardGameMessage.READY:
-			// marks the specified player as ready for a new game
-			setReadyState(clientSocket);
-			break;
-		case CardGameMessage.MOVE:
-			println("Broadcasts a \"MOVE\" message from "
-					+ clientSocket.getRemoteSocketAddress());
-			// broadcast the MOVE message to all clients
-			broadcastMessage(message);
-			break;
-		case CardGameMessage.MSG:
-			println("Broadcasts a user message from "
-					+ clientSocket.getRemoteSocketAddress());
-			// broadcast the user message to all clients
-			broadcastUserMessage(clientSocket, (String) message.getData());
-			break;
-		default:
-			println("Wrong message type: " + message.getType());
-			// invalid message
-			break;
+	/**
+	 * Sets the executor running the handlers which receive messages from the
+	 * clients in blocking mode, one task per client, and the writers sending
+	 * messages to them. By default every handler runs on a platform thread of
+	 * its own.
+	 * 
+	 * @param executor
+	 *            the executor for the handlers
+	 */
+	public void setHandlerExecutor(ExecutorService executor) {
+		handlerExecutor = executor;
+	}
+
+	/**
+	 * Sets whether Nagle's algorithm is disabled on the sockets of the clients
+	 * accepted afterwards. The messages waiting for a client are already sent
+	 * in one write, so disabling it sends a batch at once rather than waiting
+	 * for the acknowledgement of the previous one, at the cost of more packets
+	 * under load.
+	 * 
+	 * @param tcpNoDelay
+	 *            true to set TCP_NODELAY on the sockets
+	 */
+	public void setTcpNoDelay(boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+	}
+
+	/**
+	 * Sets the time for which the seat of a player who loses the connection
+	 * during a game is kept, so that the player can connect again and take
+	 * it back. The other players wait for that time at most.
+	 * 
+	 * @param millis
+	 *            the grace period in milliseconds, or 0 to free the seat at
+	 *            once and stop the game
+	 */
+	public void setGracePeriod(long millis) {
+		gracePeriodMillis = millis;
+	}
+
+	/**
+	 * Returns the time for which the seat of a player who loses the
+	 * connection during a game is kept.
+	 * 
+	 * @return the grace period in milliseconds
+	 */
+	public long getGracePeriod() {
+		return gracePeriodMillis;
+	}
+
+	/**
+	 * Creates an executor which runs every task on a virtual thread of its
+	 * own, if the JVM supports virtual threads.
+	 * 
+	 * @return an executor running tasks on virtual threads, or null if the
+	 *         JVM has no virtual threads
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			// looked up at run time so that the server still runs on JVMs
+			// without virtual threads
+			return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception ex) {
+			return null;
 		}
-	} // parseMessage
+	}
 
 	/**
-	 * Broadcasts the specified message to all clients.
+	 * Prints the status of the server (see getStatus()) to the text area at a
+	 * fixed rate, with the CPU usage since the previous report.
 	 * 
-	 * @param message
-	 *            the specified message to be broadcast to all clients
-	 */
-	private synchronized void broadcastMessage(CardGameMessage message) {
-		if (numOfPlayers > 0) {
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] != null && clientOutputStreams[i] != null) {
-					try {
-						clientOutputStreams[i].writeObject(message);
-					} catch (Exception ex) {
-						println("Error in broadcasting a message to the client at "
-								+ clientSockets[i].getRemoteSocketAddress());
-						ex.printStackTrace();
-					}
-				}
+	 * @param seconds
+	 *            the interval between two reports in seconds
+	 */
+	public void reportStatus(long seconds) {
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			// the CPU time and the time of the previous report, kept by this
+			// reporter alone so that other callers of getStatus() do not
+			// shorten its interval
+			private long lastCpuTime = getProcessCpuTime();
+			private long lastReport = System.nanoTime();
+
+			public void run() {
+				long cpuTime = getProcessCpuTime();
+				long now = System.nanoTime();
+				println(getStatus(cpuUsage(lastCpuTime, cpuTime, now
+						- lastReport) + "% CPU"));
+				lastCpuTime = cpuTime;
+				lastReport = now;
+			}
+		}, seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Returns the number of open connections, including those being closed.
+	 * 
+	 * @return the number of open connections
+	 */
+	public int getNumOfConnections() {
+		return numOfConnections.get();
+	}
+
+	/**
+	 * Returns the status of the server: the number of open connections, of
+	 * players and of rooms, the number of seats kept, the depth of the deepest
+	 * outbound queue, the chat messages dropped or coalesced for the players
+	 * connected, the size of the largest handle table of an ObjectOutputStream, the number of live
+	 * platform threads and, among them, the carrier threads of virtual
+	 * threads, the heap in use and the average CPU usage since the server
+	 * started. Comparing the threads and the heap with the connections gives
+	 * the cost of a connection.
+	 * 
+	 * @return a line describing the status of the server
+	 */
+	public String getStatus() {
+		return getStatus(cpuUsage(0, getProcessCpuTime(), ManagementFactory
+				.getRuntimeMXBean().getUptime() * 1000000L)
+				+ "% CPU since the start");
+	}
+
+	/**
+	 * Returns the status of the server (see getStatus()) with the specified
+	 * CPU usage.
+	 * 
+	 * @param cpuUsage
+	 *            the CPU usage, as it is to be printed
+	 * @return a line describing the status of the server
+	 */
+	private String getStatus(String cpuUsage) {
+		int numOfThreads = 0;
+		int numOfCarrierThreads = 0;
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			numOfThreads++;
+			if (t.getClass().getName().equals("jdk.internal.misc.CarrierThread")) {
+				numOfCarrierThreads++;
 			}
 		}
-	} // broadcastMessage
-
-	/**
-	 * Adds a new socket connection to the server
-	 * 
-	 * @param clientSocket
-	 *            the socket connection to be added to the server
-	 */
-	private synchronized void addConnection(Socket clientSocket) {
-		// adds this connection to the server if the server is not full
-		if (numOfPlayers < maxNumOfPlayers) {
-			// locates the first empty slot for the new connection
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == null) {
-					try {
-						// creates an ObjectOutputStream for this client socket
-						ObjectOutputStream oostream = new ObjectOutputStream(
-								clientSocket.getOutputStream());
-
-						clientSockets[i] = clientSocket;
-						clientOutputStreams[i] = oostream;
-						clientNames[i] = null;
-						clientReadyStates[i] = false;
-						numOfPlayers++;
-						println("Establishes a connection with a client at "
-								+ clientSocket.getRemoteSocketAddress());
-
-						// creates a thread for receiving messages from this
-						// client
-						Thread t = new Thread(new ClientHandler(clientSocket));
-						t.start();
-
-						// sends the player list to the new player
-						oostream.writeObject(new CardGameMessage(
-								CardGameMessage.PLAYER_LIST, i, clientNames));
-					} catch (Exception ex) {
-						println("Error in establishing a connection with a client at "
-								+ clientSocket.getRemoteSocketAddress());
-						ex.printStackTrace();
-					}
-					break;
-				}
-			} // for
-		} else {
-			// Max. no. of players reached
-			println("Server is full: cannot establish a connection with a client at "
-					+ clientSocket.getRemoteSocketAddress());
-
-			// creates a thread for sending a FULL message to this client, waits
-			// for 1000 milliseconds and closes the socket
-			Thread t = new Thread(new ClientHandler2(clientSocket));
-			t.start();
+		int numOfRooms;
+		int numOfPlayers = 0;
+		synchronized (rooms) {
+			numOfRooms = rooms.size();
+			for (CardGameRoom room : rooms) {
+				numOfPlayers += room.getNumOfPlayers();
+			}
 		}
+		Runtime runtime = Runtime.getRuntime();
+		long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+		return numOfConnections.get() + " connections, " + numOfPlayers
+				+ " players in " + numOfRooms + " rooms, "
+				+ numOfKeptSeats.get() + " seats kept, outbound queues up to "
+				+ getMaxQueueDepth() + " messages ("
+				+ getNumOfDroppedMessages()
+				+ " chat messages dropped), handle tables up to "
+				+ getMaxHandleTableSize() + " objects, " + numOfThreads
+				+ " platform threads (" + numOfCarrierThreads
+				+ " carrier threads), " + heapUsed / (1024 * 1024)
+				+ " MB of heap in use, " + cpuUsage;
+	}
 
-	} // addConnection
+	/**
+	 * Returns the CPU time used by the process of the server so far.
+	 * 
+	 * @return the CPU time in nanoseconds, or -1 if the JVM does not report
+	 *         it
+	 */
+	public static long getProcessCpuTime() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (!(os instanceof com.sun.management.OperatingSystemMXBean)) {
+			return -1;
+		}
+		return ((com.sun.management.OperatingSystemMXBean) os)
+				.getProcessCpuTime();
+	}
 
 	/**
-	 * Removes a connection from the server (possibly due to connection loss).
+	 * Returns the CPU usage between two samples of the CPU time, as a
+	 * percentage of one core, as top reports it.
+	 * 
+	 * @param fromCpuTime
+	 *            the CPU time at the first sample, in nanoseconds
+	 * @param toCpuTime
+	 *            the CPU time at the second sample, in nanoseconds
+	 * @param elapsedNanos
+	 *            the time between the two samples, in nanoseconds
+	 * @return the CPU usage, or -1 if either sample is unknown
+	 */
+	private static int cpuUsage(long fromCpuTime, long toCpuTime,
+			long elapsedNanos) {
+		if (fromCpuTime < 0 || toCpuTime < 0) {
+			return -1;
+		}
+		return elapsedNanos <= 0 ? 0
+				: (int) (100 * (toCpuTime - fromCpuTime) / elapsedNanos);
+	}
+
+	/**
+	 * Returns the number of chat messages which the players connected did
+	 * not get on their own because they were slow.
+	 * 
+	 * @return the number of chat messages dropped or coalesced
+	 */
+	public int getNumOfDroppedMessages() {
+		int numOfDropped = 0;
+		for (ClientConnection connection : roomOfConnection.keySet()) {
+			numOfDropped += connection.getNumOfDroppedMessages();
+		}
+		return numOfDropped;
+	}
+
+	/**
+	 * Returns the depth of the deepest outbound queue of the players.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection being removed from the server
+	 * @return the largest number of messages waiting to be written to a
+	 *         player
 	 */
-	private synchronized void removeConnection(Socket clientSocket) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					String name = clientNames[i];
+	public int getMaxQueueDepth() {
+		int maxDepth = 0;
+		for (ClientConnection connection : roomOfConnection.keySet()) {
+			maxDepth = Math.max(maxDepth, connection.getQueueDepth());
+		}
+		return maxDepth;
+	}
 
-					clientSockets[i] = null;
-					clientOutputStreams[i] = null;
-					clientNames[i] = null;
-					clientReadyStates[i] = false;
-					numOfPlayers--;
+	/**
+	 * Returns the size of the largest handle table among the ObjectOutputStreams
+	 * of the players in blocking mode. It stays flat as long as the streams are
+	 * reset.
+	 * 
+	 * @return the largest number of objects held by a handle table
+	 */
+	public int getMaxHandleTableSize() {
+		int maxSize = 0;
+		for (ClientConnection connection : roomOfConnection.keySet()) {
+			if (connection instanceof SocketConnection) {
+				maxSize = Math.max(maxSize,
+						((SocketConnection) connection).getHandleTableSize());
+			}
+		}
+		return maxSize;
+	}
 
-					println(name + " (" + clientSocket.getRemoteSocketAddress()
-							+ ") leaves the game.");
+	/**
+	 * Sets after how many messages or bytes the ObjectOutputStream of a client
+	 * in blocking mode is reset, for the connections opened afterwards.
+	 * 
+	 * @param messageBudget
+	 *            the number of messages between two resets, or 0 for no
+	 *            limit
+	 * @param byteBudget
+	 *            the number of bytes between two resets, or 0 for no limit
+	 */
+	public void setSerializationBudget(int messageBudget, long byteBudget) {
+		resetMessageBudget = messageBudget;
+		resetByteBudget = byteBudget;
+	}
 
-					String remoteAddress = clientSocket
-							.getRemoteSocketAddress().toString();
+	/**
+	 * Creates the channel writing the messages of a new connection in
+	 * blocking mode, with the budget of the server.
+	 * 
+	 * @param out
+	 *            the stream to the client
+	 * @return a new serialization channel
+	 * @throws IOException
+	 *             if the header of the stream cannot be written
+	 */
+	SerializationChannel newSerializationChannel(OutputStream out)
+			throws IOException {
+		return new SerializationChannel(out, resetMessageBudget,
+				resetByteBudget);
+	}
 
-					// broadcasts a message about the leaving of this player
-					broadcastMessage(new CardGameMessage(CardGameMessage.QUIT,
-							i, remoteAddress));
-					break;
-				}
+	/**
+	 * Sets what is done with clients which do not read their messages fast
+	 * enough, for the connections opened afterwards.
+	 * 
+	 * @param policy
+	 *            the policy applied to a slow client
+	 * @param threshold
+	 *            the number of messages waiting for a client from which it is
+	 *            considered slow, at least 1
+	 * @throws IllegalArgumentException
+	 *             if the threshold is less than 1
+	 */
+	public void setOutboundQueuePolicy(OutboundQueue.Policy policy,
+			int threshold) {
+		OutboundQueue.checkThreshold(threshold);
+		queuePolicy = policy;
+		queueThreshold = threshold;
+	}
+
+	/**
+	 * Creates an outbound queue for a new connection, with the policy of the
+	 * server.
+	 * 
+	 * @return a new outbound queue
+	 */
+	OutboundQueue newOutboundQueue() {
+		return new OutboundQueue(queuePolicy, queueThreshold);
+	}
+
+	/**
+	 * Returns the executor running the handlers and writers of the clients in
+	 * blocking mode.
+	 * 
+	 * @return the executor of the handlers
+	 */
+	ExecutorService getHandlerExecutor() {
+		return handlerExecutor;
+	}
+
+	/**
+	 * Returns the scheduler of the server, for delayed work of the
+	 * connections.
+	 * 
+	 * @return the scheduler of the server
+	 */
+	ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Counts a connection which has been opened.
+	 */
+	void connectionOpened() {
+		numOfConnections.incrementAndGet();
+	}
+
+	/**
+	 * Counts a connection which has been closed.
+	 */
+	void connectionClosed() {
+		numOfConnections.decrementAndGet();
+	}
+
+	/**
+	 * Receives an incoming message from the specified client.
+	 * 
+	 * @param connection
+	 *            the connection to the specified client
+	 * @param message
+	 *            the message received from the specified client
+	 */
+	void receiveMessage(ClientConnection connection, CardGameMessage message) {
+		println("Message received from "
+				+ connection.getRemoteSocketAddress());
+		if (message.getType() == CardGameMessage.RESUME) {
+			if (message.getData() instanceof String) {
+				resume(connection, (String) message.getData());
 			}
+			return;
 		}
-	} // removeConnection
+		CardGameRoom room = roomOfConnection.get(connection);
+		if (room != null) {
+			room.receive(connection, message);
+		} else if (waitingConnections.remove(connection)) {
+			// only a session can be resumed while the server is full
+			refuse(connection);
+		}
+	} // receiveMessage
 
 	/**
-	 * adds a player to the game.
+	 * Gives the seat kept for the session of the specified token to the
+	 * specified connection, which leaves the seat it may have been given.
+	 * The client is sent a SNAPSHOT message without a snapshot if there is no
+	 * such session, and then plays in the seat it has been given.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the player who is joining the game
-	 * @param name
-	 *            the name of the player who is joining the game
+	 * @param connection
+	 *            the connection of the client resuming the session
+	 * @param token
+	 *            the session token presented by the client
 	 */
-	private synchronized void addPlayer(Socket clientSocket, String name) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					// updates the name of the new player
-					clientNames[i] = name;
+	private void resume(ClientConnection connection, String token) {
+		CardGameRoom room = roomOfSession.get(token);
+		boolean waiting = waitingConnections.remove(connection);
+		if (room == null) {
+			println("No session to resume for the client at "
+					+ connection.getRemoteSocketAddress());
+			if (waiting) {
+				refuse(connection);
+			} else {
+				sendNoSnapshot(connection);
+			}
+			return;
+		}
+		CardGameRoom current = roomOfConnection.put(connection, room);
+		if (current != null) {
+			current.withdraw(connection);
+		}
+		room.resume(connection, token);
+	}
 
-					println(name + " (" + clientSocket.getRemoteSocketAddress()
-							+ ") joins the game.");
+	/**
+	 * Seats a connection whose session could not be resumed, as the seat has
+	 * been freed in the meantime, like a new connection.
+	 * 
+	 * @param connection
+	 *            the connection of the client which tried to resume
+	 */
+	void resumeFailed(ClientConnection connection) {
+		roomOfConnection.remove(connection);
+		if (addConnection(connection)
+				&& !waitingConnections.contains(connection)) {
+			sendNoSnapshot(connection);
+		}
+	}
 
-					// broadcasts a message about this player joining the game
-					broadcastMessage(new CardGameMessage(CardGameMessage.JOIN,
-							i, name));
-					break;
-				}
+	/**
+	 * Tells a client that there is no session to resume, so that it joins
+	 * the game in the seat it has been given.
+	 * 
+	 * @param connection
+	 *            the connection to the client
+	 */
+	private void sendNoSnapshot(ClientConnection connection) {
+		try {
+			connection.send(new OutboundMessage(new CardGameMessage(
+					CardGameMessage.SNAPSHOT, -1, null)));
+		} catch (Exception ex) {
+			println("Error in sending a SNAPSHOT message to the client at "
+					+ connection.getRemoteSocketAddress());
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Opens a session for a player who joins a game in the specified room.
+	 * 
+	 * @param room
+	 *            the room of the player
+	 * @return the session token, by which the player can take the seat back
+	 */
+	String startSession(CardGameRoom room) {
+		String token;
+		do {
+			byte[] bytes = new byte[16];
+			random.nextBytes(bytes);
+			StringBuilder sb = new StringBuilder(2 * bytes.length);
+			for (byte b : bytes) {
+				sb.append(String.format("%02x", b & 0xFF));
 			}
+			token = sb.toString();
+		} while (roomOfSession.putIfAbsent(token, room) != null);
+		return token;
+	}
+
+	/**
+	 * Ends the session of a player whose seat has been freed.
+	 * 
+	 * @param token
+	 *            the session token of the player
+	 */
+	void endSession(String token) {
+		roomOfSession.remove(token);
+	}
+
+	/**
+	 * Counts a seat which has been kept for a player who lost the connection.
+	 */
+	void seatKept() {
+		numOfKeptSeats.incrementAndGet();
+	}
+
+	/**
+	 * Counts a kept seat which has been taken back or freed.
+	 */
+	void seatReleased() {
+		numOfKeptSeats.decrementAndGet();
+	}
+
+	/**
+	 * Notes that the specified room has an empty slot again.
+	 * 
+	 * @param room
+	 *            the room in which a seat has been freed
+	 */
+	void seatFreed(CardGameRoom room) {
+		synchronized (rooms) {
+			firstOpenRoom = Math.min(firstOpenRoom, room.getRoomID());
 		}
-	} // addPlayer
-
-	/**
-	 * Marks the specified player as ready for a new game.
-	 * 
-	 * @param clientSocket
-	 *            the socket connection to the player who becomes ready for a
-	 *            new game
-	 */
-	private synchronized void setReadyState(Socket clientSocket) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					clientReadyStates[i] = true;
-					println(clientNames[i] + " ("
-							+ clientSocket.getRemoteSocketAddress()
-							+ " ) is ready for the next game.");
-					broadcastMessage(new CardGameMessage(CardGameMessage.READY,
-							i, null));
-					break;
+	}
+
+	/**
+	 * Adds a new connection to the server, in the first room with an empty
+	 * slot. A new room is opened if all the rooms are full and the maximum
+	 * number of rooms has not been reached. If the server is full while seats
+	 * are kept for players who lost the connection, the connection may wait a
+	 * few seconds for its client to resume a session. The connection is added by a task
+	 * of its room, so this method returns without waiting for the room.
+	 * 
+	 * @param connection
+	 *            the connection to be added to the server
+	 * @return true if the connection has been added, or is waiting to resume
+	 *         a session while the server is full, or false if the server is
+	 *         full and the connection is being closed
+	 */
+	boolean addConnection(final ClientConnection connection) {
+		synchronized (rooms) {
+			// locates the first room with an empty slot for the new connection
+			for (int i = firstOpenRoom; i < rooms.size(); i++) {
+				if (rooms.get(i).enter(connection)) {
+					roomOfConnection.put(connection, rooms.get(i));
+					return true;
 				}
+				firstOpenRoom = i + 1;
+			}
+			if (maxNumOfRooms == 0 || rooms.size() < maxNumOfRooms) {
+				CardGameRoom room = new CardGameRoom(this, rooms.size(),
+						maxNumOfPlayers, roomExecutor);
+				rooms.add(room);
+				room.enter(connection);
+				roomOfConnection.put(connection, room);
+				return true;
 			}
 		}
 
-		// checks if all players are ready
-		if (numOfPlayers == maxNumOfPlayers) {
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientReadyStates[i] == false) {
-					// returns if any of the players is not ready
-					return;
+		if (numOfKeptSeats.get() > 0) {
+			// the client may be a player coming back to a kept seat, so it
+			// is given some time to resume its session
+			waitingConnections.add(connection);
+			scheduler.schedule(new Runnable() {
+				public void run() {
+					if (waitingConnections.remove(connection)) {
+						refuse(connection);
+					}
 				}
-			}
+			}, WAITING_PERIOD, TimeUnit.MILLISECONDS);
+			return true;
+		}
 
-			// resets the ready states of all the players for the next game
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				clientReadyStates[i] = false;
-			}
+		refuse(connection);
+		return false;
+	} // addConnection
+
+	/**
+	 * Tells a client that the server is full, and closes the connection.
+	 * 
+	 * @param connection
+	 *            the connection to the client
+	 */
+	private void refuse(ClientConnection connection) {
+		// Max. no. of players reached
+		println("Server is full: cannot establish a connection with a client at "
+				+ connection.getRemoteSocketAddress());
 
-			// creates a new deck, shuffles the deck, and starts a new game
-			Deck deck = createDeck();
-			deck.shuffle();
-			println("All players are ready. Game starts.");
-			broadcastMessage(new CardGameMessage(CardGameMessage.START, -1,
-					deck));
+		// sends a FULL message to this client and closes the connection
+		// after 1000 milliseconds
+		try {
+			connection.send(new OutboundMessage(new CardGameMessage(
+					CardGameMessage.FULL, -1, null)));
+		} catch (Exception ex) {
+			println("Error in sending a FULL message to the client at "
+					+ connection.getRemoteSocketAddress());
+			ex.printStackTrace();
 		}
+		connection.closeLater(1000);
 	}
 
+	/**
+	 * Removes a connection from the server (possibly due to connection loss).
+	 * 
+	 * @param connection
+	 *            the connection being removed from the server
+	 */
+	void removeConnection(ClientConnection connection) {
+		waitingConnections.remove(connection);
+		CardGameRoom room = roomOfConnection.remove(connection);
+		if (room != null) {
+			// the room tells the server once the seat has been freed
+			room.leave(connection);
+		}
+	} // removeConnection
+
 	/**
 	 * Creates and returns an instance of the Deck class. Overrides this method
 	 * if a different type of deck is needed.
@@ -362,29 +829,16 @@ public class CardGameServer {
 		return new Deck();
 	}
 
-	private synchronized void broadcastUserMessage(Socket clientSocket,
-			String msg) {
-		if (numOfPlayers > 0) {
-			// locates the client in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					String longMsg = clientNames[i] + " ("
-							+ clientSocket.getRemoteSocketAddress() + "): "
-							+ msg;
-					broadcastMessage(new CardGameMessage(CardGameMessage.MSG,
-							i, longMsg));
-					break;
-				}
-			}
-		}
-	}
-
 	/**
 	 * Prints the specified message to the text area.
 	 * 
 	 * @param msg
 	 */
-	private void println(String msg) {
+	void println(String msg) {
+		if (textArea == null) {
+			System.out.println(msg);
+			return;
+		}
 		textArea.append(msg + "\n");
 		textArea.setCaretPosition(textArea.getDocument().getLength());
 	}
@@ -396,99 +850,40 @@ public class CardGameServer {
 	 *
 	 */
 	private class ClientHandler implements Runnable {
-		private Socket clientSocket; // socket connection to the client
-		private ObjectInputStream oistream; // ObjectInputStream of the client
+		private SocketConnection connection; // connection to the client
 
 		/**
 		 * Creates and returns an instance of the ClientHandler class.
 		 * 
-		 * @param clientSocket
-		 *            the socket connection to the client
+		 * @param connection
+		 *            the connection to the client
 		 */
-		public ClientHandler(Socket clientSocket) {
-			this.clientSocket = clientSocket;
-			try {
-				// creates an ObjectInputStream and chains it to the InputStream
-				// of the client socket
-				oistream = new ObjectInputStream(clientSocket.getInputStream());
-			} catch (Exception ex) {
-				println("Error in creating an ObjectInputStream for the client at "
-						+ clientSocket.getRemoteSocketAddress());
-				ex.printStackTrace();
-			}
+		public ClientHandler(SocketConnection connection) {
+			this.connection = connection;
 		} // constructor
 
 		// implementation of method from the Runnable interface
 		public void run() {
 			CardGameMessage message;
 			try {
+				// creates an ObjectInputStream and chains it to the InputStream
+				// of the client socket
+				ObjectInputStream oistream = connection.openInputStream();
 				// waits for messages from the client
 				while ((message = (CardGameMessage) oistream.readObject()) != null) {
-					println("Message received from "
-							+ clientSocket.getRemoteSocketAddress());
-					parseMessage(clientSocket, message);
+					receiveMessage(connection, message);
 				} // close while
 			} catch (Exception ex) {
 				println("Error in receiving messages from the client at "
-						+ clientSocket.getRemoteSocketAddress());
+						+ connection.getRemoteSocketAddress());
 				ex.printStackTrace();
-				// possible connection loss, removes the connection
-				removeConnection(clientSocket);
+				// possible connection loss, removes and closes the connection
+				removeConnection(connection);
+				connection.close();
 			}
 		} // run
 	} // ClientHandler
 
-	private class ClientHandler2 implements Runnable {
-		private Socket clientSocket; // socket connection to the client
-
-		/**
-		 * Creates and returns an instance of the ClientHandler2 class.
-		 * 
-		 * @param clientSocket
-		 *            the socket connection to the client
-		 */
-		public ClientHandler2(Socket clientSocket) {
-			this.clientSocket = clientSocket;
-		} // constructor
-
-		// implementation of method from the Runnable interface
-		public void run() {
-			try {
-				// creates an ObjectOutputStream and chains it to the
-				// OutputStream
-				// of the client socket
-				ObjectOutputStream oostream = new ObjectOutputStream(
-						clientSocket.getOutputStream());
-				// sends a FULL message to the client
-				oostream.writeObject(new CardGameMessage(CardGameMessage.FULL,
-						-1, null));
-				oostream.flush();
-			} catch (Exception ex) {
-				println("Error in sending a FULL message to the client at "
-						+ clientSocket.getRemoteSocketAddress());
-				ex.printStackTrace();
-			}
-
-			// sleeps for 1000 milliseconds before closing the socket
-			try {
-				Thread.sleep(1000);
-			} catch (Exception ex) {
-				println("Error in sleeping before closing the client socket at "
-						+ clientSocket.getRemoteSocketAddress());
-				ex.printStackTrace();
-			}
-
-			// closes the socket
-			try {
-				clientSocket.close();
-			} catch (Exception ex) {
-				println("Error in closing the client socket at "
-						+ clientSocket.getRemoteSocketAddress());
-				ex.printStackTrace();
-			}
-		} // run
-	} // ClientHandler2
-
 	/**
 	 * This inner class is used for handling the Clear menu
 	 * 
@@ -501,6 +896,18 @@ public class CardGameServer {
 		}
 	} // ClearMenuItemListener
 
+	/**
+	 * This inner class is used for handling the Status menu
+	 * 
+	 * @author Li Gengyu
+	 *
+	 */
+	private class StatusMenuItemListener implements ActionListener {
+		public void actionPerformed(ActionEvent e) {
+			println(getStatus());
+		}
+	} // StatusMenuItemListener
+
 	/**
 	 * This inner class is used for handling the Quit menu
 	 * 
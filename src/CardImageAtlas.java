@@ -0,0 +1,259 @@
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+import javax.swing.ImageIcon;
+
+/**
+ * This class holds the images of the Big Two table scaled to the size of the panel, so that painting the table is
+ * a series of plain copies rather than of scaled draws. The faces and the back of the cards, the avatars and the
+ * star are scaled once into one atlas, and the background into an image of its own, both compatible with the
+ * screen; they are built again only when the panel is resized.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class CardImageAtlas {
+
+	private static final String[] SUIT_FILES = { "d.jpg", "c.jpg", "h.jpg", "s.jpg" }; // The file names by suit
+
+	private final Image[][] cardImages; // The images for the faces of the cards, by rank and suit
+	private final Image cardBackImage; // The image for the backs of the cards
+	private final Image[] avatars; // The images for the avatars
+	private final Image star; // The image marking the current player
+	private final Image background; // The image for the background
+	private int width = -1; // The width of the panel the images are scaled for
+	private int height = -1; // The height of the panel the images are scaled for
+	private int cardWidth; // The width of a card in the atlas
+	private int cardHeight; // The height of a card in the atlas
+	private int avatarSize; // The width and height of an avatar in the atlas
+	private int starSize; // The width and height of the star in the atlas
+	private BufferedImage atlas; // The scaled cards in rows by suit, then the back, the avatars and the star
+	private BufferedImage scaledBackground; // The background scaled to the panel
+	private int numOfBuilds = 0; // The number of times the images have been scaled
+
+	/**
+	 * Constructor of CardImageAtlas class, loading the images from the working directory.
+	 */
+	public CardImageAtlas() {
+		cardBackImage = new ImageIcon("back.jpg").getImage();
+		avatars = new Image[4];
+		for (int i = 0; i < 4; i++) {
+			avatars[i] = new ImageIcon(Integer.toString(i) + ".jpg").getImage();
+		}
+		cardImages = new Image[13][4];
+		for (int i = 0; i < 13; i++) {
+			for (int j = 0; j < 4; j++) {
+				cardImages[i][j] = new ImageIcon(Integer.toString(i + 1) + SUIT_FILES[j]).getImage();
+			}
+		}
+		star = new ImageIcon("star.jpg").getImage();
+		background = new ImageIcon("background.jpg").getImage();
+	}
+
+	/**
+	 * Method to scale the images for a panel of the specified size, unless they already are. A card is a ninth
+	 * of the height of the panel wide and a seventh high, an avatar a seventh square and the star a 27th.
+	 *
+	 * @param width
+	 * 				The width of the panel.
+	 *
+	 * @param height
+	 * 				The height of the panel.
+	 *
+	 * @param gc
+	 * 				The configuration of the screen showing the panel, or null if it is not shown yet.
+	 *
+	 * @return
+	 * 			True if the images have been scaled again, false if they were already scaled for that size.
+	 */
+	public boolean validate(int width, int height, GraphicsConfiguration gc) {
+		if (width == this.width && height == this.height) {
+			return false;
+		}
+		this.width = width;
+		this.height = height;
+		if (width <= 0 || height <= 0) {
+			atlas = null;
+			scaledBackground = null;
+			return true;
+		}
+		cardWidth = Math.max(1, height / 9);
+		cardHeight = Math.max(1, height / 7);
+		avatarSize = Math.max(1, height / 7);
+		starSize = Math.max(1, height / 27);
+
+		int atlasWidth = Math.max(13 * cardWidth, cardWidth + 4 * avatarSize + starSize);
+		int atlasHeight = 4 * cardHeight + Math.max(cardHeight, avatarSize);
+		atlas = newImage(gc, atlasWidth, atlasHeight);
+		Graphics2D g = atlas.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		for (int i = 0; i < 13; i++) {
+			for (int j = 0; j < 4; j++) {
+				g.drawImage(cardImages[i][j], i * cardWidth, j * cardHeight, cardWidth, cardHeight, null);
+			}
+		}
+		g.drawImage(cardBackImage, 0, 4 * cardHeight, cardWidth, cardHeight, null);
+		for (int i = 0; i < 4; i++) {
+			g.drawImage(avatars[i], cardWidth + i * avatarSize, 4 * cardHeight, avatarSize, avatarSize, null);
+		}
+		g.drawImage(star, cardWidth + 4 * avatarSize, 4 * cardHeight, starSize, starSize, null);
+		g.dispose();
+
+		scaledBackground = newImage(gc, width, height);
+		g = scaledBackground.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(background, 0, 0, width, height, null);
+		g.dispose();
+		numOfBuilds++;
+		return true;
+	}
+
+	/**
+	 * Method to draw the background over the whole panel.
+	 *
+	 * @param g
+	 * 				The graphics of the panel.
+	 */
+	public void drawBackground(Graphics g) {
+		if (scaledBackground != null) {
+			g.drawImage(scaledBackground, 0, 0, null);
+		}
+	}
+
+	/**
+	 * Method to draw the face of a card.
+	 *
+	 * @param g
+	 * 				The graphics of the panel.
+	 *
+	 * @param card
+	 * 				The card to be drawn.
+	 *
+	 * @param x
+	 * 				The x coordinate of the top left corner of the card.
+	 *
+	 * @param y
+	 * 				The y coordinate of the top left corner of the card.
+	 */
+	public void drawCard(Graphics g, Card card, int x, int y) {
+		copy(g, card.getRank() * cardWidth, card.getSuit() * cardHeight, cardWidth, cardHeight, x, y);
+	}
+
+	/**
+	 * Method to draw the back of a card.
+	 *
+	 * @param g
+	 * 				The graphics of the panel.
+	 *
+	 * @param x
+	 * 				The x coordinate of the top left corner of the card.
+	 *
+	 * @param y
+	 * 				The y coordinate of the top left corner of the card.
+	 */
+	public void drawCardBack(Graphics g, int x, int y) {
+		copy(g, 0, 4 * cardHeight, cardWidth, cardHeight, x, y);
+	}
+
+	/**
+	 * Method to draw the avatar of a player.
+	 *
+	 * @param g
+	 * 				The graphics of the panel.
+	 *
+	 * @param playerID
+	 * 				The index of the player.
+	 *
+	 * @param x
+	 * 				The x coordinate of the top left corner of the avatar.
+	 *
+	 * @param y
+	 * 				The y coordinate of the top left corner of the avatar.
+	 */
+	public void drawAvatar(Graphics g, int playerID, int x, int y) {
+		copy(g, cardWidth + playerID * avatarSize, 4 * cardHeight, avatarSize, avatarSize, x, y);
+	}
+
+	/**
+	 * Method to draw the star marking the current player.
+	 *
+	 * @param g
+	 * 				The graphics of the panel.
+	 *
+	 * @param x
+	 * 				The x coordinate of the top left corner of the star.
+	 *
+	 * @param y
+	 * 				The y coordinate of the top left corner of the star.
+	 */
+	public void drawStar(Graphics g, int x, int y) {
+		copy(g, cardWidth + 4 * avatarSize, 4 * cardHeight, starSize, starSize, x, y);
+	}
+
+	/**
+	 * Getter of the number of times the images have been scaled, i.e. of the sizes the panel has had.
+	 *
+	 * @return
+	 * 			The number of builds of the atlas.
+	 */
+	public int getNumOfBuilds() {
+		return numOfBuilds;
+	}
+
+	/**
+	 * Method to copy a region of the atlas to the panel, at the same size.
+	 *
+	 * @param g
+	 * 				The graphics of the panel.
+	 *
+	 * @param sx
+	 * 				The x coordinate of the region in the atlas.
+	 *
+	 * @param sy
+	 * 				The y coordinate of the region in the atlas.
+	 *
+	 * @param w
+	 * 				The width of the region.
+	 *
+	 * @param h
+	 * 				The height of the region.
+	 *
+	 * @param x
+	 * 				The x coordinate in the panel.
+	 *
+	 * @param y
+	 * 				The y coordinate in the panel.
+	 */
+	private void copy(Graphics g, int sx, int sy, int w, int h, int x, int y) {
+		if (atlas != null) {
+			g.drawImage(atlas, x, y, x + w, y + h, sx, sy, sx + w, sy + h, null);
+		}
+	}
+
+	/**
+	 * Method to create an opaque image in the format of the screen, which Java 2D can keep in video memory.
+	 *
+	 * @param gc
+	 * 				The configuration of the screen, or null for a plain RGB image.
+	 *
+	 * @param width
+	 * 				The width of the image.
+	 *
+	 * @param height
+	 * 				The height of the image.
+	 *
+	 * @return
+	 * 			A new image.
+	 */
+	private static BufferedImage newImage(GraphicsConfiguration gc, int width, int height) {
+		if (gc == null) {
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		return gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+	}
+}
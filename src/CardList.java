@@ -1,14 +1,21 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 
 /**
- * This class is used to represent a list of cards.
+ * This class is used to represent a list of cards. Besides the list itself, the
+ * cards are also recorded in a CardSet so that membership tests, removals of
+ * absent cards and sorting of Big Two cards do not need to scan the list.
  * 
  * @author Kenneth Wong
  */
 public class CardList implements Serializable {
 	private static final long serialVersionUID = -3711761437629470849L;
 	private ArrayList<Card> cards = new ArrayList<Card>();
+	// the set of distinct cards in the list, rebuilt after deserialization
+	private transient CardSet cardSet = new CardSet();
 
 	/**
 	 * Appends the specified card to the end of this list.
@@ -19,6 +26,7 @@ public class CardList implements Serializable {
 	public void addCard(Card card) {
 		if (card != null) {
 			cards.add(card);
+			cardSet.add(card);
 		}
 	}
 
@@ -49,7 +57,10 @@ public class CardList implements Serializable {
 	 */
 	public Card removeCard(int i) {
 		if (i >= 0 && i < cards.size()) {
-			return cards.remove(i);
+			boolean distinct = cardSet.size() == cards.size();
+			Card card = cards.remove(i);
+			forget(card, distinct);
+			return card;
 		} else {
 			return null;
 		}
@@ -66,7 +77,13 @@ public class CardList implements Serializable {
 	 * @return true if this list contained the specified card; otherwise false
 	 */
 	public boolean removeCard(Card card) {
-		return cards.remove(card);
+		if (card == null || !cardSet.contains(card)) {
+			return false;
+		}
+		boolean distinct = cardSet.size() == cards.size();
+		cards.remove(card);
+		forget(card, distinct);
+		return true;
 	}
 
 	/**
@@ -74,6 +91,7 @@ public class CardList implements Serializable {
 	 */
 	public void removeAllCards() {
 		cards = new ArrayList<Card>();
+		cardSet.clear();
 	}
 
 	/**
@@ -89,12 +107,33 @@ public class CardList implements Serializable {
 	 */
 	public Card setCard(int i, Card card) {
 		if (i >= 0 && i < cards.size()) {
-			return cards.set(i, card);
+			boolean distinct = cardSet.size() == cards.size();
+			Card previous = cards.set(i, card);
+			forget(previous, distinct);
+			if (card != null) {
+				cardSet.add(card);
+			}
+			return previous;
 		} else {
 			return null;
 		}
 	}
 
+	/**
+	 * Swaps the cards at the specified positions in this list. The set of
+	 * cards in the list does not change.
+	 * 
+	 * @param i
+	 *            the index of one card to be swapped
+	 * @param j
+	 *            the index of the other card to be swapped
+	 */
+	public void swapCards(int i, int j) {
+		if (i >= 0 && i < cards.size() && j >= 0 && j < cards.size()) {
+			Collections.swap(cards, i, j);
+		}
+	}
+
 	/**
 	 * Returns true if this list contains the specified card.
 	 * 
@@ -103,7 +142,7 @@ public class CardList implements Serializable {
 	 * @return true if this list contains the specified card; otherwise false
 	 */
 	public boolean contains(Card card) {
-		return cards.contains(card);
+		return card != null && cardSet.contains(card);
 	}
 
 	/**
@@ -116,10 +155,29 @@ public class CardList implements Serializable {
 	}
 
 	/**
-	 * Sorts this list according to the order of the cards.
+	 * Sorts this list according to the order of the cards. A list of distinct
+	 * Big Two cards is rebuilt by walking its card set, which is already in
+	 * Big Two order; any other list is sorted by comparison.
 	 */
 	public void sort() {
-		cards.sort(null);
+		if (cardSet.size() == cards.size() && isBigTwoCards()) {
+			int i = 0;
+			for (int idx = cardSet.first(); idx >= 0; idx = cardSet.nextIndex(idx + 1)) {
+				cards.set(i++, CardSet.cardAt(idx));
+			}
+		} else {
+			cards.sort(null);
+		}
+	}
+
+	/**
+	 * Returns the cards in this list as a mask in which bit i is set if the
+	 * card with index i (see CardSet#indexOf(Card)) is in this list.
+	 * 
+	 * @return the mask of the cards in this list
+	 */
+	public long getMask() {
+		return cardSet.toLong();
 	}
 
 	/**
@@ -174,6 +232,57 @@ public class CardList implements Serializable {
 		}
 	}
 
+	/**
+	 * Removes the specified card from the card set after it has been taken out
+	 * of the list, unless another copy of it is still in the list.
+	 * 
+	 * @param card
+	 *            the card taken out of the list, may be null
+	 * @param distinct
+	 *            whether the list held distinct cards before the card was taken
+	 *            out, in which case no other copy can be left
+	 */
+	private void forget(Card card, boolean distinct) {
+		if (card != null && (distinct || !cards.contains(card))) {
+			cardSet.remove(card);
+		}
+	}
+
+	/**
+	 * Returns true if every card in this list is ordered as a BigTwoCard.
+	 * 
+	 * @return true if every card in this list is an instance of BigTwoCard
+	 */
+	private boolean isBigTwoCards() {
+		for (int i = 0; i < cards.size(); i++) {
+			if (cards.get(i).getClass() != BigTwoCard.class) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Restores the card set after the list has been deserialized.
+	 * 
+	 * @param in
+	 *            the stream the list is read from
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws ClassNotFoundException
+	 *             if the class of a card cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		cardSet = new CardSet();
+		for (int i = 0; i < cards.size(); i++) {
+			if (cards.get(i) != null) {
+				cardSet.add(cards.get(i));
+			}
+		}
+	}
+
 	/**
 	 * Returns a string representation of the cards in the list
 	 * 
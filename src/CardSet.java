@@ -0,0 +1,290 @@
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is used to represent a set of cards as a 52-bit mask packed into a single long. Each card is mapped
+ * to the bit of its Big Two ordinal (see BigTwoCard#getOrdinal()), that is, bit 0 is the 3 of Diamond and bit 51
+ * is the 2 of Spade. Adding, removing and testing a card are therefore single bit operations, the size is a popcount,
+ * and iterating over the bits from low to high visits the cards in Big Two order.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class CardSet implements Iterable<Card>, Serializable {
+
+	/**
+	 * This is a default serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The number of distinct cards that can be held by a card set.
+	 */
+	public static final int NUM_OF_CARDS = 52;
+
+	/**
+	 * A mask with all the 52 card bits set.
+	 */
+	public static final long FULL_MASK = (1L << NUM_OF_CARDS) - 1;
+
+	private long mask; // The bits of the cards in this set
+
+	/**
+	 * Creates an empty card set.
+	 */
+	public CardSet() {
+		mask = 0L;
+	}
+
+	/**
+	 * Creates a card set from a mask of card bits.
+	 *
+	 * @param mask
+	 * 				A mask in which bit i is set if the card with index i is in the set, bits above 51 are ignored.
+	 */
+	public CardSet(long mask) {
+		this.mask = mask & FULL_MASK;
+	}
+
+	/**
+	 * Method to retrieve the bit index of the card with the given suit and rank.
+	 *
+	 * @param suit
+	 * 				The suit of the card 0, 1, 2, 3
+	 *
+	 * @param rank
+	 * 				The rank of the card 0 - 12, where 0 is A and 1 is 2
+	 *
+	 * @return
+	 * 			An integer between 0 and 51, 0 for the 3 of Diamond and 51 for the 2 of Spade.
+	 */
+	public static int indexOf(int suit, int rank) {
+		return BigTwoCard.ordinalOf(suit, rank);
+	}
+
+	/**
+	 * Method to retrieve the bit index of the given card.
+	 *
+	 * @param card
+	 * 				The card whose index is wanted.
+	 *
+	 * @return
+	 * 			An integer between 0 and 51, 0 for the 3 of Diamond and 51 for the 2 of Spade.
+	 */
+	public static int indexOf(Card card) {
+		return BigTwoCard.ordinalOf(card);
+	}
+
+	/**
+	 * Method to retrieve the single bit mask of the given card.
+	 *
+	 * @param card
+	 * 				The card whose bit is wanted.
+	 *
+	 * @return
+	 * 			A long value with only the bit of the card set.
+	 */
+	public static long bitOf(Card card) {
+		return 1L << indexOf(card);
+	}
+
+	/**
+	 * Method to retrieve the card mapped to the given bit index.
+	 *
+	 * @param index
+	 * 				An integer between 0 and 51.
+	 *
+	 * @return
+	 * 			The BigTwoCard of that index.
+	 */
+	public static BigTwoCard cardAt(int index) {
+		return BigTwoCard.fromOrdinal(index);
+	}
+
+	/**
+	 * Adds the specified card to this set.
+	 *
+	 * @param card
+	 * 				The card to be added.
+	 *
+	 * @return
+	 * 			True if the card was not in this set before, and vice versa.
+	 */
+	public boolean add(Card card) {
+		long bit = bitOf(card);
+		boolean added = (mask & bit) == 0;
+		mask |= bit;
+		return added;
+	}
+
+	/**
+	 * Removes the specified card from this set.
+	 *
+	 * @param card
+	 * 				The card to be removed.
+	 *
+	 * @return
+	 * 			True if the card was in this set, and vice versa.
+	 */
+	public boolean remove(Card card) {
+		long bit = bitOf(card);
+		boolean removed = (mask & bit) != 0;
+		mask &= ~bit;
+		return removed;
+	}
+
+	/**
+	 * Method to judge whether the specified card is in this set.
+	 *
+	 * @param card
+	 * 				The card to be tested.
+	 *
+	 * @return
+	 * 			True if the card is in this set, and vice versa.
+	 */
+	public boolean contains(Card card) {
+		return (mask & bitOf(card)) != 0;
+	}
+
+	/**
+	 * Returns the number of cards in this set.
+	 *
+	 * @return
+	 * 			The number of bits set in the mask.
+	 */
+	public int size() {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * Returns true if this set contains no cards.
+	 *
+	 * @return
+	 * 			True if the set is empty, and vice versa.
+	 */
+	public boolean isEmpty() {
+		return mask == 0L;
+	}
+
+	/**
+	 * Removes all cards from this set.
+	 */
+	public void clear() {
+		mask = 0L;
+	}
+
+	/**
+	 * Returns the mask of this set.
+	 *
+	 * @return
+	 * 			A long value in which bit i is set if the card with index i is in this set.
+	 */
+	public long toLong() {
+		return mask;
+	}
+
+	/**
+	 * Method to retrieve the index of the lowest card in this set.
+	 *
+	 * @return
+	 * 			The index of the lowest card, or -1 if the set is empty.
+	 */
+	public int first() {
+		return nextIndex(0);
+	}
+
+	/**
+	 * Method to retrieve the index of the lowest card in this set whose index is not smaller than the given one.
+	 * Used with first() to walk through the set in Big Two order without creating an iterator.
+	 *
+	 * @param from
+	 * 				The index to start searching from.
+	 *
+	 * @return
+	 * 			The index of the next card, or -1 if there is no such card.
+	 */
+	public int nextIndex(int from) {
+		if (from >= NUM_OF_CARDS) {
+			return -1;
+		}
+		long bits = mask & (-1L << from);
+		return bits == 0L ? -1 : Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Returns an iterator over the cards in this set in Big Two order.
+	 *
+	 * @return
+	 * 			An iterator over the cards in this set.
+	 *
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<Card> iterator() {
+		return new Iterator<Card>() {
+			private long remaining = mask;
+
+			@Override
+			public boolean hasNext() {
+				return remaining != 0L;
+			}
+
+			@Override
+			public Card next() {
+				if (remaining == 0L) {
+					throw new NoSuchElementException();
+				}
+				int index = Long.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+				return BigTwoCard.fromOrdinal(index);
+			}
+		};
+	}
+
+	/**
+	 * Indicates whether the specified object is a card set with the same cards.
+	 *
+	 * @param obj
+	 * 				The object to be compared.
+	 *
+	 * @return
+	 * 			True if both sets hold the same cards, and vice versa.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof CardSet && ((CardSet) obj).mask == mask;
+	}
+
+	/**
+	 * Returns a hash code value for the card set.
+	 *
+	 * @return
+	 * 			A hash code value for the card set.
+	 */
+	@Override
+	public int hashCode() {
+		return Long.hashCode(mask);
+	}
+
+	/**
+	 * Returns a string representation of the cards in this set in Big Two order.
+	 *
+	 * @return
+	 * 			A string representation of the cards in this set.
+	 */
+	@Override
+	public String toString() {
+		if (mask == 0L) {
+			return "[Empty]";
+		}
+		StringBuilder string = new StringBuilder();
+		for (int i = first(); i >= 0; i = nextIndex(i + 1)) {
+			if (string.length() > 0) {
+				string.append(' ');
+			}
+			string.append('[').append(BigTwoCard.fromOrdinal(i)).append(']');
+		}
+		return string.toString();
+	}
+}
@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+
+/**
+ * An interface for the connection between a card game server and one of its
+ * clients, whatever the way the messages are carried.
+ *
+ * @author Li Gengyu
+ *
+ */
+public interface ClientConnection {
+	/**
+	 * Sends the specified message to the client without blocking: the message
+	 * is queued and written by another thread if the client cannot take it at
+	 * once. The same message may be sent to several clients, which then share
+	 * its encoded frames. If the client is too slow, the message may be
+	 * dropped or coalesced, or the connection closed, as the OutboundQueue of
+	 * the connection decides.
+	 *
+	 * @param message
+	 *            the message to be sent to the client
+	 * @throws IOException
+	 *             if the connection is closed
+	 */
+	public void send(OutboundMessage message) throws IOException;
+
+	/**
+	 * Returns the number of messages waiting to be written to the client.
+	 *
+	 * @return the depth of the outbound queue of the connection
+	 */
+	public int getQueueDepth();
+
+	/**
+	 * Returns the number of chat messages which the client did not get on
+	 * their own because it was slow (see OutboundQueue).
+	 *
+	 * @return the number of chat messages dropped or coalesced
+	 */
+	public int getNumOfDroppedMessages();
+
+	/**
+	 * Closes the connection to the client.
+	 */
+	public void close();
+
+	/**
+	 * Closes the connection to the client after the specified delay, leaving
+	 * time for the messages already sent to arrive.
+	 *
+	 * @param delayMillis
+	 *            the delay in milliseconds
+	 */
+	public void closeLater(long delayMillis);
+
+	/**
+	 * Returns the address of the client.
+	 *
+	 * @return the address of the client
+	 */
+	public SocketAddress getRemoteSocketAddress();
+}
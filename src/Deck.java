@@ -1,3 +1,5 @@
+import java.util.Random;
+
 /**
  * This class is used to represent a deck of cards in general card games.
  * 
@@ -20,8 +22,7 @@ public class Deck extends CardList {
 		removeAllCards();
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 13; j++) {
-				Card card = new Card(i, j);
-				addCard(card);
+				addCard(Card.of(i, j));
 			}
 		}
 	}
@@ -33,9 +34,22 @@ public class Deck extends CardList {
 		for (int i = 0; i < this.size(); i++) {
 			int j = (int) (Math.random() * this.size());
 			if (i != j) {
-				Card card = setCard(i, getCard(j));
-				setCard(j, card);
+				swapCards(i, j);
 			}
 		}
 	}
+
+	/**
+	 * Shuffles the deck of cards with the specified random number generator,
+	 * so that a shuffle can be repeated from a seed and threads shuffling
+	 * their own decks do not share a generator.
+	 * 
+	 * @param random
+	 *            the random number generator used for the shuffle
+	 */
+	public void shuffle(Random random) {
+		for (int i = this.size() - 1; i > 0; i--) {
+			swapCards(i, random.nextInt(i + 1));
+		}
+	}
 }
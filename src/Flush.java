@@ -49,38 +49,12 @@ public class Flush extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "Flush";
-	}
-
-	/**
-	 * Method to judge whether this hand beats that hand. Override because Flush > Straight
-	 * 
-	 * @param hand
-	 * 				Another hand for comparing.
-	 * 
-	 * @return
-	 * 			A boolean value to indicate whether this hand beats that hand or not, true if beats,
-	 *          and vice versa.
-	 */
-	@Override
-	public boolean beats(Hand hand) {
-		if (hand.getType() == "Straight") {
-			return true;
-		} else if (hand.getType() == "Flush") {
-			if (getCard(0).getSuit() > hand.getCard(0).getSuit()) {
-				return true;
-			} else if (getCard(0).getSuit() > hand.getCard(0).getSuit()) {
-				return false;
-			} else {
-				return super.beats(hand);
-			}
-		}
-		return false;
+	public HandType getHandType() {
+		return HandType.FLUSH;
 	}
 }
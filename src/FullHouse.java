@@ -24,30 +24,6 @@ public class FullHouse extends Hand {
 		super(player, cards);
 	}
 
-	/**
-	 * Method to judge whether this hand beats that hand. Override because FullHouse > Flush > Straight
-	 * 
-	 * @param hand
-	 * 				Another hand for comparing.
-	 * 
-	 * @return
-	 * 			A boolean value to indicate whether this hand beats that hand or not, true if beats,
-	 *          and vice versa.
-	 */
-	@Override
-	public boolean beats(Hand hand) {
-		if (hand.getType() == "Straight" || hand.getType() == "Flush") {
-			return true;
-		} else if (hand.getType() == "FullHouse") {
-			if (getTopCard().compareTo(hand.getTopCard()) == 1) {
-				return true;
-			} else {
-				return false;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Judge the FullHouse hand is valid or not.
 	 * 
@@ -77,13 +53,13 @@ public class FullHouse extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "FullHouse";
+	public HandType getHandType() {
+		return HandType.FULL_HOUSE;
 	}
 
 	/**
@@ -95,7 +71,6 @@ public class FullHouse extends Hand {
 	 */
 	@Override
 	public Card getTopCard() {
-		sort();
 		if (getCard(0).getRank() == getCard(1).getRank() && getCard(0).getRank() == getCard(2).getRank()) {
 			int index = 0, suit = getCard(0).getSuit();
 			for (int i = 1; i < 3; i++) {
@@ -14,9 +14,11 @@ public abstract class Hand extends CardList {
 	 */
 	private static final long serialVersionUID = 1L;
 	private CardGamePlayer player; // The player who plays this hand
+	private final int strength; // The code of this hand by HandClassifier, computed once at construction
 
 	/**
-	 * Constructor of Hand class, which set the player and list of card of this hand.
+	 * Constructor of Hand class, which set the player and list of card of this hand. The cards are sorted once
+	 * here and the strength of the hand is computed, so a hand should not be changed after it is created.
 	 * 
 	 * @param player
 	 * 				The player who plays this hand.
@@ -29,6 +31,13 @@ public abstract class Hand extends CardList {
 		for (int i = 0; i < cards.size(); i++) {
 			addCard(cards.getCard(i));
 		}
+		sort();
+		long mask = getMask();
+		if (Long.bitCount(mask) == size()) {
+			strength = HandClassifier.classify(mask);
+		} else {
+			strength = HandClassifier.INVALID;
+		}
 	}
 	
 	/**
@@ -38,15 +47,27 @@ public abstract class Hand extends CardList {
 		return player;
 	}
 	
+	/**
+	 * Getter of the strength of this hand, which is the code given by HandClassifier#classify(long) to its
+	 * cards. It holds the category of the hand in the high bits and the top card, or for some five-card hands
+	 * the suit or the rank that decides, in the low bits, so that of two hands of the same size the stronger
+	 * one has the larger strength.
+	 * 
+	 * @return
+	 * 			The strength of this hand, or HandClassifier.INVALID if the cards do not compose a valid hand.
+	 */
+	public int getStrength() {
+		return strength;
+	}
+	
 	/**
 	 * Method to retrieve the top card according to the compareTo method, of this hand, usually used to compare
-	 * to same type hands.
+	 * to same type hands. The cards are sorted when the hand is created, so the top card is the last one.
 	 * 
 	 * @return
 	 * 			Return the top card in the hand. Or in the card list.
 	 */
 	public Card getTopCard() {
-		sort();
 		if (!isEmpty()) {
 			return getCard(size() - 1);
 		}
@@ -54,7 +75,10 @@ public abstract class Hand extends CardList {
 	}
 	
 	/**
-	 * Method to judge whether this hand beats that hand. 
+	 * Method to judge whether this hand beats that hand. Only hands of the same size can beat each other, and
+	 * then the one with the larger strength wins: as the category in the strength is the ordinal of the
+	 * HandType, a five-card hand of a later type beats one of an earlier type (Straight < Flush < FullHouse <
+	 * Quad < StraightFlush), and hands of the same type are compared by their keys.
 	 * 
 	 * @param hand
 	 * 				Another hand for comparing.
@@ -64,10 +88,7 @@ public abstract class Hand extends CardList {
 	 *          and vice versa.
 	 */
 	public boolean beats(Hand hand) {
-		if (getType() == hand.getType() && getTopCard().compareTo(hand.getTopCard()) == 1) {
-			return true;
-		}
-		return false;
+		return strength != HandClassifier.INVALID && size() == hand.size() && strength > hand.strength;
 	}
 	
 	/**
@@ -82,7 +103,17 @@ public abstract class Hand extends CardList {
 	 * Abstract method which will be implemented by the subclasses to indicate which type of hand it is.
 	 * 
 	 * @return
+	 * 			The HandType constant of the hand.
+	 */
+	public abstract HandType getHandType();
+	
+	/**
+	 * Method to retrieve the name of the type of this hand.
+	 * 
+	 * @return
 	 * 			A String object of the hand's name.
 	 */
-	public abstract String getType();
+	public String getType() {
+		return getHandType().getName();
+	}
 }
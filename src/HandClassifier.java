@@ -0,0 +1,205 @@
+
+/**
+ * This class classifies a selection of cards into a Big Two hand without creating any object. The cards are
+ * given as a CardSet mask (see CardList#getMask()), and the result is a single integer code which holds both
+ * the category of the hand and its comparison key. The rank counts and the suits of the cards are read from
+ * the mask with the lookup tables below, so classifying a hand takes a constant number of bit operations no
+ * matter which of the five-card hands it is. The category of a hand is the ordinal of its HandType, so the
+ * categories are numbered in one place only.
+ *
+ * @author Li Gengyu
+ *
+ */
+public final class HandClassifier {
+
+	/**
+	 * The code returned for cards which cannot compose a valid hand.
+	 */
+	public static final int INVALID = -1;
+
+	private static final int KEY_BITS = 8; // The number of low bits of a code holding the key
+	private static final long RANK_LOW_BITS = 0x1111111111111L; // The lowest bit of each of the 13 rank groups
+	private static final long STRAIGHT_RANKS = 0x11111L; // Five consecutive ranks starting from the lowest one
+	private static final int[] NIBBLE_COUNT = new int[16]; // The number of cards in a 4-bit rank group
+	private static final long[] SUIT_MASKS = new long[4]; // The bits of all the cards of each suit
+
+	static {
+		for (int i = 0; i < 16; i++) {
+			NIBBLE_COUNT[i] = Integer.bitCount(i);
+		}
+		for (int suit = 0; suit < 4; suit++) {
+			SUIT_MASKS[suit] = RANK_LOW_BITS << suit;
+		}
+	}
+
+	/**
+	 * This class only has static methods.
+	 */
+	private HandClassifier() {
+	}
+
+	/**
+	 * Method to classify the cards in the given mask. The code is built so that, for two hands of the same
+	 * size, the hand with the larger code beats the other one: the category takes the high bits, ordered from
+	 * Straight to Straight Flush for five-card hands, and the key takes the low bits. The key is the ordinal of
+	 * the top card, except for a Flush, where the suit comes before the top card, a Full House, where only the
+	 * triple counts, and a Quad, where only the four cards of the same rank count.
+	 *
+	 * @param mask
+	 * 				The cards to be classified, bit i for the card with Big Two ordinal i.
+	 *
+	 * @return
+	 * 			The code of the hand, or INVALID if the cards do not compose a valid hand.
+	 */
+	public static int classify(long mask) {
+		int size = Long.bitCount(mask);
+		if (size == 0 || size == 4 || size > 5 || (mask & ~CardSet.FULL_MASK) != 0) {
+			return INVALID;
+		}
+		int top = 63 - Long.numberOfLeadingZeros(mask);
+		if (size < 5) {
+			int rank = Long.numberOfTrailingZeros(mask) >>> 2;
+			if (NIBBLE_COUNT[(int) (mask >>> (rank << 2)) & 0xF] != size) {
+				return INVALID;
+			}
+			return code(HandType.SINGLE.ordinal() + size - 1, top);
+		}
+
+		long ranks = (mask | mask >>> 1 | mask >>> 2 | mask >>> 3) & RANK_LOW_BITS;
+		int numOfRanks = Long.bitCount(ranks);
+		if (numOfRanks == 2) {
+			int low = Long.numberOfTrailingZeros(ranks) >>> 2;
+			int high = (63 - Long.numberOfLeadingZeros(ranks)) >>> 2;
+			int lowCount = NIBBLE_COUNT[(int) (mask >>> (low << 2)) & 0xF];
+			int main = (lowCount >= 3) ? low : high; // The rank with four or three cards
+			if (lowCount == 4 || lowCount == 1) {
+				return code(HandType.QUAD.ordinal(), (main << 2) + 3);
+			}
+			int group = (int) (mask >>> (main << 2)) & 0xF;
+			return code(HandType.FULL_HOUSE.ordinal(), (main << 2) + 31 - Integer.numberOfLeadingZeros(group));
+		}
+		if (numOfRanks != 5) {
+			return INVALID;
+		}
+
+		int suit = Long.numberOfTrailingZeros(mask) & 3;
+		boolean flush = (mask & SUIT_MASKS[suit]) == mask;
+		boolean straight = (ranks >>> Long.numberOfTrailingZeros(ranks)) == STRAIGHT_RANKS;
+		if (straight && flush) {
+			return code(HandType.STRAIGHT_FLUSH.ordinal(), top);
+		} else if (flush) {
+			return code(HandType.FLUSH.ordinal(), suit * CardSet.NUM_OF_CARDS + top);
+		} else if (straight) {
+			return code(HandType.STRAIGHT.ordinal(), top);
+		}
+		return INVALID;
+	}
+
+	/**
+	 * Method to retrieve the category of a code returned by classify.
+	 *
+	 * @param code
+	 * 				A code returned by classify.
+	 *
+	 * @return
+	 * 			The ordinal of the HandType of the hand, or INVALID.
+	 */
+	public static int categoryOf(int code) {
+		return code >> KEY_BITS;
+	}
+
+	/**
+	 * Method to retrieve the HandType of a code returned by classify.
+	 *
+	 * @param code
+	 * 				A code returned by classify.
+	 *
+	 * @return
+	 * 			The HandType of the hand, or null if the code is INVALID.
+	 */
+	public static HandType typeOf(int code) {
+		return HandType.fromCategory(categoryOf(code));
+	}
+
+	/**
+	 * Method to retrieve the comparison key of a code returned by classify.
+	 *
+	 * @param code
+	 * 				A valid code returned by classify.
+	 *
+	 * @return
+	 * 			The comparison key of the hand within its category.
+	 */
+	public static int keyOf(int code) {
+		return code & ((1 << KEY_BITS) - 1);
+	}
+
+	/**
+	 * Method to create the Hand object of a classified list of cards. It is the only place where a hand is
+	 * created for a selection, after classify has found which hand it is.
+	 *
+	 * @param code
+	 * 				The code returned by classify for the cards.
+	 *
+	 * @param player
+	 * 				The player who plays the hand.
+	 *
+	 * @param cards
+	 * 				The list of cards composing the hand.
+	 *
+	 * @return
+	 * 			The hand of the category of the code, or null if the code is INVALID.
+	 */
+	public static Hand newHand(int code, CardGamePlayer player, CardList cards) {
+		HandType type = typeOf(code);
+		if (type == null) {
+			return null;
+		}
+		Hand hand;
+		switch (type) {
+		case SINGLE:
+			hand = new Single(player, cards);
+			break;
+		case PAIR:
+			hand = new Pair(player, cards);
+			break;
+		case TRIPLE:
+			hand = new Triple(player, cards);
+			break;
+		case STRAIGHT:
+			hand = new Straight(player, cards);
+			break;
+		case FLUSH:
+			hand = new Flush(player, cards);
+			break;
+		case FULL_HOUSE:
+			hand = new FullHouse(player, cards);
+			break;
+		case QUAD:
+			hand = new Quad(player, cards);
+			break;
+		case STRAIGHT_FLUSH:
+			hand = new StraightFlush(player, cards);
+			break;
+		default:
+			return null;
+		}
+		return hand;
+	}
+
+	/**
+	 * Method to pack a category and a key into a code.
+	 *
+	 * @param category
+	 * 				The category of the hand.
+	 *
+	 * @param key
+	 * 				The comparison key of the hand within its category.
+	 *
+	 * @return
+	 * 			The code of the hand.
+	 */
+	private static int code(int category, int key) {
+		return (category << KEY_BITS) | key;
+	}
+}
@@ -0,0 +1,74 @@
+
+/**
+ * This enum lists the categories of hands in the Big Two game. The order of the constants is the order of the
+ * categories: a five-card hand of a later category beats one of an earlier category, and the ordinal of each
+ * constant is the category used by HandClassifier, so categories can be compared as plain integers.
+ *
+ * @author Li Gengyu
+ *
+ */
+public enum HandType {
+	SINGLE("Single", 1),
+	PAIR("Pair", 2),
+	TRIPLE("Triple", 3),
+	STRAIGHT("Straight", 5),
+	FLUSH("Flush", 5),
+	FULL_HOUSE("FullHouse", 5),
+	QUAD("Quad", 5),
+	STRAIGHT_FLUSH("StraightFlush", 5);
+
+	private static final HandType[] TYPES = values(); // The types indexed by category
+
+	private final String name; // The name of the hand as printed on the table
+	private final int size; // The number of cards in a hand of this type
+
+	/**
+	 * Constructor of HandType.
+	 *
+	 * @param name
+	 * 				The name of the hand as printed on the table.
+	 *
+	 * @param size
+	 * 				The number of cards in a hand of this type.
+	 */
+	HandType(String name, int size) {
+		this.name = name;
+		this.size = size;
+	}
+
+	/**
+	 * Method to retrieve the type of a HandClassifier category.
+	 *
+	 * @param category
+	 * 				A category returned by HandClassifier#categoryOf(int).
+	 *
+	 * @return
+	 * 			The type of the category, or null for HandClassifier.INVALID.
+	 */
+	public static HandType fromCategory(int category) {
+		if (category < 0 || category >= TYPES.length) {
+			return null;
+		}
+		return TYPES[category];
+	}
+
+	/**
+	 * Getter of the name of the hand, which is also what Hand#getType() returns.
+	 *
+	 * @return
+	 * 			The name of the hand, e.g. "FullHouse".
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter of the number of cards in a hand of this type.
+	 *
+	 * @return
+	 * 			1, 2, 3 or 5.
+	 */
+	public int getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * This class counts latencies in buckets of logarithmic size, as HdrHistogram does, so that the percentiles of
+ * millions of values are kept in a few kilobytes with a bounded relative error. The values below 2^SUB_BITS
+ * nanoseconds have a bucket each; above, every power of two is split into 2^(SUB_BITS - 1) buckets, so a
+ * percentile is within 1/64 of the true value. Values above MAX_VALUE are counted as MAX_VALUE. Histograms are
+ * not thread-safe; the owner of one (see LoadTestStats) synchronizes it.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The largest value counted, in nanoseconds (about 68 seconds).
+	 */
+	public static final long MAX_VALUE = (1L << 36) - 1;
+
+	private static final int SUB_BITS = 7; // The number of bits of a value which select its bucket
+	private static final int HALF_COUNT = 1 << (SUB_BITS - 1); // The number of buckets per power of two
+	private static final int NUM_OF_BUCKETS = (64 - Long.numberOfLeadingZeros(MAX_VALUE) - SUB_BITS + 2)
+			* HALF_COUNT; // The number of buckets up to MAX_VALUE
+
+	private final long[] counts = new long[NUM_OF_BUCKETS]; // The number of values in each bucket
+	private long totalCount; // The number of values
+	private long totalNanos; // The values, summed
+
+	/**
+	 * Method to count a value.
+	 *
+	 * @param nanos
+	 * 				The value in nanoseconds; a negative one is counted as 0.
+	 */
+	public void recordValue(long nanos) {
+		long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+		counts[indexOf(value)]++;
+		totalCount++;
+		totalNanos += value;
+	}
+
+	/**
+	 * Method to add the values of another histogram to this one.
+	 *
+	 * @param other
+	 * 				The histogram to be added.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		totalNanos += other.totalNanos;
+	}
+
+	/**
+	 * Method to remove the values of an earlier copy of this histogram, leaving those counted since.
+	 *
+	 * @param earlier
+	 * 				A copy of this histogram taken earlier.
+	 */
+	public void subtract(LatencyHistogram earlier) {
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			counts[i] -= earlier.counts[i];
+		}
+		totalCount -= earlier.totalCount;
+		totalNanos -= earlier.totalNanos;
+	}
+
+	/**
+	 * Method to copy the histogram.
+	 *
+	 * @return
+	 * 			A copy of this histogram.
+	 */
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.add(this);
+		return copy;
+	}
+
+	/**
+	 * Getter of the number of values.
+	 *
+	 * @return
+	 * 			The number of values counted.
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Getter of the mean of the values.
+	 *
+	 * @return
+	 * 			The mean in nanoseconds, or 0 if there is no value.
+	 */
+	public double getMean() {
+		return totalCount == 0 ? 0.0 : (double) totalNanos / totalCount;
+	}
+
+	/**
+	 * Getter of a percentile of the values, i.e. the largest value of the bucket holding it.
+	 *
+	 * @param percentile
+	 * 				The percentile, from 0 to 100.
+	 *
+	 * @return
+	 * 			The value in nanoseconds below or at which that percentage of the values are, or 0 if there is no
+	 * 			value.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+		long seen = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return highestValueOf(i);
+			}
+		}
+		return MAX_VALUE;
+	}
+
+	/**
+	 * Getter of the largest value, i.e. the largest value of the highest bucket which is not empty.
+	 *
+	 * @return
+	 * 			The largest value in nanoseconds, or 0 if there is no value.
+	 */
+	public long getMax() {
+		for (int i = NUM_OF_BUCKETS - 1; i >= 0; i--) {
+			if (counts[i] != 0) {
+				return highestValueOf(i);
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Returns a report of the histogram on one line: the number of values, their mean, percentiles and maximum.
+	 *
+	 * @return
+	 * 			A string report of the histogram, in milliseconds.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d, mean %.2f ms, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms", totalCount,
+				getMean() / 1e6, getValueAtPercentile(50.0) / 1e6, getValueAtPercentile(99.0) / 1e6,
+				getValueAtPercentile(99.9) / 1e6, getMax() / 1e6);
+	}
+
+	/**
+	 * Method to find the bucket of a value.
+	 *
+	 * @param value
+	 * 				A value from 0 to MAX_VALUE.
+	 *
+	 * @return
+	 * 			The index of the bucket.
+	 */
+	private static int indexOf(long value) {
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+		return (shift + 1) * HALF_COUNT + (int) (value >>> shift) - HALF_COUNT;
+	}
+
+	/**
+	 * Method to find the largest value of a bucket.
+	 *
+	 * @param index
+	 * 				The index of the bucket.
+	 *
+	 * @return
+	 * 			The largest value counted in that bucket.
+	 */
+	private static long highestValueOf(int index) {
+		int shift = Math.max(0, index / HALF_COUNT - 1);
+		long subIndex = index - (long) shift * HALF_COUNT;
+		return Math.min(((subIndex + 1) << shift) - 1, MAX_VALUE);
+	}
+}
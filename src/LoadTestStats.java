@@ -0,0 +1,215 @@
+/**
+ * This class collects the statistics of the headless clients of a load test (see BigTwoBot): the games they
+ * played, the messages they sent and received, and the latencies of those messages through the server in
+ * histograms (see LatencyHistogram). Each bot fills its own object on its own threads, and the driver merges
+ * copies of them, so the bots never share statistics.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class LoadTestStats {
+
+	private long games; // The number of games finished
+	private long wins; // The number of games won
+	private long moves; // The number of MOVE messages sent
+	private long chats; // The number of MSG messages sent
+	private long received; // The number of messages received
+	private long errors; // The number of connections which failed or were refused
+	private final LatencyHistogram moveLatency = new LatencyHistogram(); // From a MOVE sent to each player getting it
+	private final LatencyHistogram chatLatency = new LatencyHistogram(); // From a MSG sent to its sender getting it
+
+	/**
+	 * Method to record a finished game.
+	 *
+	 * @param won
+	 * 				Whether the bot won the game.
+	 */
+	public synchronized void recordGame(boolean won) {
+		games++;
+		if (won) {
+			wins++;
+		}
+	}
+
+	/**
+	 * Method to record a MOVE message sent.
+	 */
+	public synchronized void recordMove() {
+		moves++;
+	}
+
+	/**
+	 * Method to record a MSG message sent.
+	 */
+	public synchronized void recordChat() {
+		chats++;
+	}
+
+	/**
+	 * Method to record a message received.
+	 */
+	public synchronized void recordReceived() {
+		received++;
+	}
+
+	/**
+	 * Method to record the latency of a MOVE message, from the time its sender sent it to the time a player of
+	 * the room, the sender included, received the broadcast of it.
+	 *
+	 * @param nanos
+	 * 				The latency in nanoseconds.
+	 */
+	public synchronized void recordMoveLatency(long nanos) {
+		moveLatency.recordValue(nanos);
+	}
+
+	/**
+	 * Method to record the round trip of a MSG message, from the time it was sent to the time the server
+	 * broadcast it back to its sender.
+	 *
+	 * @param nanos
+	 * 				The round trip in nanoseconds.
+	 */
+	public synchronized void recordChatLatency(long nanos) {
+		chatLatency.recordValue(nanos);
+	}
+
+	/**
+	 * Method to record a connection which failed or was refused by the server.
+	 */
+	public synchronized void recordError() {
+		errors++;
+	}
+
+	/**
+	 * Method to add the statistics of another bot to this object.
+	 *
+	 * @param other
+	 * 				The statistics to be added, which may still be changing.
+	 *
+	 * @return
+	 * 			This object.
+	 */
+	public LoadTestStats merge(LoadTestStats other) {
+		LoadTestStats copy = other.copy();
+		synchronized (this) {
+			games += copy.games;
+			wins += copy.wins;
+			moves += copy.moves;
+			chats += copy.chats;
+			received += copy.received;
+			errors += copy.errors;
+			moveLatency.add(copy.moveLatency);
+			chatLatency.add(copy.chatLatency);
+		}
+		return this;
+	}
+
+	/**
+	 * Method to remove the statistics of an earlier copy of this object, leaving those recorded since, e.g. to
+	 * report an interval or to leave out a warm-up. The errors are kept, as a connection refused during the
+	 * warm-up still means that a bot did not play.
+	 *
+	 * @param earlier
+	 * 				A copy of this object taken earlier.
+	 *
+	 * @return
+	 * 			This object.
+	 */
+	public synchronized LoadTestStats subtract(LoadTestStats earlier) {
+		games -= earlier.games;
+		wins -= earlier.wins;
+		moves -= earlier.moves;
+		chats -= earlier.chats;
+		received -= earlier.received;
+		moveLatency.subtract(earlier.moveLatency);
+		chatLatency.subtract(earlier.chatLatency);
+		return this;
+	}
+
+	/**
+	 * Method to copy the statistics at one point in time.
+	 *
+	 * @return
+	 * 			A copy of this object.
+	 */
+	public synchronized LoadTestStats copy() {
+		LoadTestStats copy = new LoadTestStats();
+		copy.games = games;
+		copy.wins = wins;
+		copy.moves = moves;
+		copy.chats = chats;
+		copy.received = received;
+		copy.errors = errors;
+		copy.moveLatency.add(moveLatency);
+		copy.chatLatency.add(chatLatency);
+		return copy;
+	}
+
+	/**
+	 * Getter of the number of games finished.
+	 *
+	 * @return
+	 * 			The number of games.
+	 */
+	public synchronized long getGames() {
+		return games;
+	}
+
+	/**
+	 * Getter of the number of messages sent.
+	 *
+	 * @return
+	 * 			The number of MOVE and MSG messages sent.
+	 */
+	public synchronized long getMessagesSent() {
+		return moves + chats;
+	}
+
+	/**
+	 * Getter of the number of messages received.
+	 *
+	 * @return
+	 * 			The number of messages of any type received from the server.
+	 */
+	public synchronized long getMessagesReceived() {
+		return received;
+	}
+
+	/**
+	 * Getter of the number of MOVE messages sent.
+	 *
+	 * @return
+	 * 			The number of moves.
+	 */
+	public synchronized long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Getter of the latencies of the MOVE messages.
+	 *
+	 * @return
+	 * 			A copy of the histogram of the latencies.
+	 */
+	public synchronized LatencyHistogram getMoveLatency() {
+		return moveLatency.copy();
+	}
+
+	/**
+	 * Returns a report of the statistics: the counts on one line, then the latencies of the MOVE messages and,
+	 * if chat messages were sent, their round trips.
+	 *
+	 * @return
+	 * 			A string report of the statistics.
+	 */
+	@Override
+	public synchronized String toString() {
+		String report = String.format("%d games (%d won), %d moves and %d chats sent, %d messages received,"
+				+ " %d errors%nMOVE latency: %s%n", games, wins, moves, chats, received, errors, moveLatency);
+		if (chatLatency.getTotalCount() > 0) {
+			report += String.format("MSG round trip: %s%n", chatLatency);
+		}
+		return report;
+	}
+}
@@ -0,0 +1,241 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class encodes and decodes the messages of the framed protocol used by the non-blocking server. Unlike the
+ * original protocol, in which each side writes all its messages to one ObjectOutputStream, every message is sent
+ * as a frame of its own: a 4-byte length followed by the message serialized by a fresh ObjectOutputStream. A
+ * frame can therefore be decoded as soon as all its bytes have arrived, without a thread blocked in readObject
+ * and without any state shared with the frames before it.
+ * <p>
+ * The payload may instead be in the compact layout of BinaryMessageCodec. The codec is told by the first byte of
+ * the payload, so a peer can read frames of both codecs on the same connection.
+ *
+ * @author Li Gengyu
+ *
+ */
+public final class MessageFrames {
+
+	/**
+	 * The size of the length at the start of every frame in bytes.
+	 */
+	public static final int HEADER_SIZE = 4;
+
+	/**
+	 * The maximum size of the payload of a frame in bytes. A peer announcing a longer frame is considered broken.
+	 */
+	public static final int MAX_FRAME_SIZE = 1 << 16;
+
+	private static final byte SERIALIZED_MAGIC = (byte) 0xAC; // The first byte of a serialized payload
+
+	/**
+	 * This class only has static methods.
+	 */
+	private MessageFrames() {
+	}
+
+	/**
+	 * Method to encode a message into a frame by serialization.
+	 *
+	 * @param message
+	 * 				The message to be encoded.
+	 *
+	 * @return
+	 * 			A buffer holding the whole frame, ready to be written to a channel.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be serialized or is too long.
+	 */
+	public static ByteBuffer encode(GameMessage message) throws IOException {
+		return encode(message, false);
+	}
+
+	/**
+	 * Method to encode a message into a frame by either codec.
+	 *
+	 * @param message
+	 * 				The message to be encoded.
+	 *
+	 * @param binary
+	 * 				True to encode the message by BinaryMessageCodec, or false to serialize it.
+	 *
+	 * @return
+	 * 			A buffer holding the whole frame, ready to be written to a channel.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be encoded or is too long.
+	 */
+	public static ByteBuffer encode(GameMessage message, boolean binary) throws IOException {
+		if (binary) {
+			byte[] payload = BinaryMessageCodec.encode(message);
+			ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+			frame.putInt(checkLength(payload.length)).put(payload);
+			frame.flip();
+			return frame;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		bytes.write(new byte[HEADER_SIZE]);
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(message);
+		oos.close();
+		ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+		int length = frame.remaining() - HEADER_SIZE;
+		if (length > MAX_FRAME_SIZE) {
+			throw new IOException("Message too long for a frame: " + length + " bytes");
+		}
+		frame.putInt(0, length);
+		return frame;
+	}
+
+	/**
+	 * Method to decode the payload of a frame.
+	 *
+	 * @param payload
+	 * 				A buffer whose remaining bytes are exactly the payload of one frame; they are consumed.
+	 *
+	 * @return
+	 * 			The message of the frame.
+	 *
+	 * @throws IOException
+	 * 				If the payload is not a valid message of either codec.
+	 */
+	public static CardGameMessage decode(ByteBuffer payload) throws IOException {
+		if (isBinary(payload)) {
+			return BinaryMessageCodec.decode(payload);
+		}
+		byte[] bytes = new byte[payload.remaining()];
+		payload.get(bytes);
+		return decode(bytes);
+	}
+
+	/**
+	 * Method to tell the codec of the payload of a frame.
+	 *
+	 * @param payload
+	 * 				A buffer holding the payload of one frame; its position is not changed.
+	 *
+	 * @return
+	 * 			True if the payload is encoded by BinaryMessageCodec, or false if it is serialized.
+	 */
+	public static boolean isBinary(ByteBuffer payload) {
+		return payload.get(payload.position()) != SERIALIZED_MAGIC;
+	}
+
+	/**
+	 * Method to read the length of the next frame from a buffer.
+	 *
+	 * @param buffer
+	 * 				The buffer holding at least HEADER_SIZE remaining bytes; its position is not changed.
+	 *
+	 * @return
+	 * 			The length of the payload of the frame.
+	 *
+	 * @throws StreamCorruptedException
+	 * 				If the length is not a valid one.
+	 */
+	public static int peekLength(ByteBuffer buffer) throws StreamCorruptedException {
+		return checkLength(buffer.getInt(buffer.position()));
+	}
+
+	/**
+	 * Method to write a message as a serialized frame to a stream and flush it, for the blocking client.
+	 *
+	 * @param out
+	 * 				The stream to the peer.
+	 *
+	 * @param message
+	 * 				The message to be sent.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be serialized or written.
+	 */
+	public static void write(DataOutputStream out, GameMessage message) throws IOException {
+		write(out, message, false);
+	}
+
+	/**
+	 * Method to write a message as a frame by either codec to a stream and flush it, for the blocking client.
+	 *
+	 * @param out
+	 * 				The stream to the peer.
+	 *
+	 * @param message
+	 * 				The message to be sent.
+	 *
+	 * @param binary
+	 * 				True to encode the message by BinaryMessageCodec, or false to serialize it.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be encoded or written.
+	 */
+	public static void write(DataOutputStream out, GameMessage message, boolean binary) throws IOException {
+		ByteBuffer frame = encode(message, binary);
+		out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+		out.flush();
+	}
+
+	/**
+	 * Method to read the next frame from a stream, blocking until it has arrived, for the blocking client.
+	 *
+	 * @param in
+	 * 				The stream from the peer.
+	 *
+	 * @return
+	 * 			The message of the frame.
+	 *
+	 * @throws IOException
+	 * 				If the stream ends or the frame is not valid.
+	 */
+	public static CardGameMessage read(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[checkLength(in.readInt())];
+		in.readFully(bytes);
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Method to deserialize the payload of a serialized frame.
+	 *
+	 * @param bytes
+	 * 				The payload.
+	 *
+	 * @return
+	 * 			The message of the frame.
+	 *
+	 * @throws IOException
+	 * 				If the payload is not a serialized CardGameMessage.
+	 */
+	private static CardGameMessage decode(byte[] bytes) throws IOException {
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return (CardGameMessage) ois.readObject();
+		} catch (ClassNotFoundException | ClassCastException ex) {
+			throw new StreamCorruptedException("Not a CardGameMessage: " + ex);
+		}
+	}
+
+	/**
+	 * Method to check the length of a frame.
+	 *
+	 * @param length
+	 * 				The length read from the header of the frame.
+	 *
+	 * @return
+	 * 			The same length.
+	 *
+	 * @throws StreamCorruptedException
+	 * 				If the length is not positive or too long.
+	 */
+	private static int checkLength(int length) throws StreamCorruptedException {
+		if (length <= 0 || length > MAX_FRAME_SIZE) {
+			throw new StreamCorruptedException("Invalid frame length: " + length);
+		}
+		return length;
+	}
+}
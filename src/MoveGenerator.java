@@ -0,0 +1,234 @@
+
+/**
+ * This class enumerates the legal plays of a player without any user interface. Given the cards in a hand and
+ * the last hand on the table, it walks through every Single, Pair, Triple and five-card hand which may be
+ * played, i.e. every hand when leading, or every hand of the same size which beats the last hand when following.
+ * On the first move of a game, only hands with the 3 of Diamond are legal. A pass is not listed.
+ * <p>
+ * The moves are produced one at a time by next() as card masks, so a generator can be reset and reused for
+ * every turn without creating any object per move:
+ *
+ * <pre>
+ * MoveGenerator generator = new MoveGenerator();
+ * generator.reset(state);
+ * while (generator.next()) {
+ *     long move = generator.getMove();
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Li Gengyu
+ *
+ */
+public class MoveGenerator {
+
+	private static final int[] ALL_SIZES = { 1, 2, 3, 5 }; // The sizes of hands tried when leading
+	private static final long THREE_OF_DIAMOND = 1L; // The bit of the 3 of Diamond, ordinal 0
+
+	private final int[] ordinals = new int[CardSet.NUM_OF_CARDS]; // The ordinals of the cards in the hand
+	private int numOfCards; // The number of cards in the hand
+	private int lastSize; // The size of the hand to beat, 0 when leading
+	private int lastStrength; // The strength of the hand to beat
+	private long required; // The cards that every move must contain
+	private int sizeIdx; // The index of the current size in ALL_SIZES
+	private long combination; // The positions in ordinals of the current combination
+	private long move; // The mask of the current move
+	private int strength; // The strength of the current move
+
+	/**
+	 * Constructor of MoveGenerator class, which creates a generator without moves until it is reset.
+	 */
+	public MoveGenerator() {
+		reset(0L, null, false);
+	}
+
+	/**
+	 * Method to start listing the legal moves of the current player of a game.
+	 *
+	 * @param state
+	 * 				The state of the game.
+	 *
+	 * @return
+	 * 			This generator.
+	 */
+	public MoveGenerator reset(BigTwoState state) {
+		long hand = state.getPlayerList().get(state.getCurrentIdx()).getCardsInHand().getMask();
+		return reset(hand, state.isLeading() ? null : state.getLastHand(), state.isFirstMove());
+	}
+
+	/**
+	 * Method to start listing the legal moves of a hand.
+	 *
+	 * @param hand
+	 * 				The mask of the cards held by the player.
+	 *
+	 * @param lastHand
+	 * 				The hand to beat, or null if the player is leading.
+	 *
+	 * @param firstMove
+	 * 				Whether this is the first move of the game, when the 3 of Diamond must be played.
+	 *
+	 * @return
+	 * 			This generator.
+	 */
+	public MoveGenerator reset(long hand, Hand lastHand, boolean firstMove) {
+		if (lastHand == null) {
+			return reset(hand, 0, HandClassifier.INVALID, firstMove ? THREE_OF_DIAMOND : 0L);
+		}
+		return reset(hand, lastHand.size(), lastHand.getStrength(), firstMove ? THREE_OF_DIAMOND : 0L);
+	}
+
+	/**
+	 * Method to start listing the legal moves of a hand against a hand given by its size and strength.
+	 *
+	 * @param hand
+	 * 				The mask of the cards held by the player.
+	 *
+	 * @param lastSize
+	 * 				The size of the hand to beat, or 0 if the player is leading.
+	 *
+	 * @param lastStrength
+	 * 				The strength of the hand to beat (see Hand#getStrength()).
+	 *
+	 * @param required
+	 * 				The mask of the cards which every move must contain, 0 for none.
+	 *
+	 * @return
+	 * 			This generator.
+	 */
+	public MoveGenerator reset(long hand, int lastSize, int lastStrength, long required) {
+		numOfCards = 0;
+		for (long bits = hand & CardSet.FULL_MASK; bits != 0L; bits &= bits - 1) {
+			ordinals[numOfCards++] = Long.numberOfTrailingZeros(bits);
+		}
+		this.lastSize = lastSize;
+		this.lastStrength = lastStrength;
+		this.required = required;
+		sizeIdx = -1;
+		combination = 0L;
+		move = 0L;
+		strength = HandClassifier.INVALID;
+		return this;
+	}
+
+	/**
+	 * Method to move to the next legal move. Singles come first, then Pairs, Triples and five-card hands, each
+	 * in the order of the positions of their cards in the hand.
+	 *
+	 * @return
+	 * 			True if there is another legal move, which can then be read with getMove, and false if all the
+	 * 			moves have been listed.
+	 */
+	public boolean next() {
+		while (true) {
+			if (combination == 0L || !nextCombination()) {
+				if (!nextSize()) {
+					move = 0L;
+					strength = HandClassifier.INVALID;
+					return false;
+				}
+			}
+			long cards = 0L;
+			for (long bits = combination; bits != 0L; bits &= bits - 1) {
+				cards |= 1L << ordinals[Long.numberOfTrailingZeros(bits)];
+			}
+			if ((cards & required) != required) {
+				continue;
+			}
+			int code = HandClassifier.classify(cards);
+			if (code != HandClassifier.INVALID && (lastSize == 0 || code > lastStrength)) {
+				move = cards;
+				strength = code;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Getter of the current move.
+	 *
+	 * @return
+	 * 			The mask of the cards of the current move, 0 before the first call to next or after the last move.
+	 */
+	public long getMove() {
+		return move;
+	}
+
+	/**
+	 * Getter of the strength of the current move, comparable with Hand#getStrength().
+	 *
+	 * @return
+	 * 			The code given by HandClassifier to the current move.
+	 */
+	public int getStrength() {
+		return strength;
+	}
+
+	/**
+	 * Getter of the type of the current move.
+	 *
+	 * @return
+	 * 			The HandType of the current move.
+	 */
+	public HandType getHandType() {
+		return HandClassifier.typeOf(strength);
+	}
+
+	/**
+	 * Method to translate a move into the indices of its cards in a list, which is what CardGame#makeMove(int,
+	 * int[]) takes.
+	 *
+	 * @param cards
+	 * 				The list of cards held by the player.
+	 *
+	 * @param move
+	 * 				The mask of the cards of the move.
+	 *
+	 * @return
+	 * 			The indices of the cards of the move in ascending order, or null if the move is empty.
+	 */
+	public static int[] toCardIdx(CardList cards, long move) {
+		if (move == 0L) {
+			return null;
+		}
+		int[] cardIdx = new int[Long.bitCount(move)];
+		int n = 0;
+		for (int i = 0; i < cards.size() && n < cardIdx.length; i++) {
+			if ((move & CardSet.bitOf(cards.getCard(i))) != 0) {
+				cardIdx[n++] = i;
+			}
+		}
+		return cardIdx;
+	}
+
+	/**
+	 * Method to move to the next combination of the current size, using Gosper's hack on the positions.
+	 *
+	 * @return
+	 * 			True if there is another combination, and vice versa.
+	 */
+	private boolean nextCombination() {
+		long lowest = combination & -combination;
+		long ripple = combination + lowest;
+		combination = ripple | (((ripple ^ combination) >>> 2) / lowest);
+		return (combination >>> numOfCards) == 0L;
+	}
+
+	/**
+	 * Method to move to the first combination of the next size that can be played.
+	 *
+	 * @return
+	 * 			True if there is such a size, and vice versa.
+	 */
+	private boolean nextSize() {
+		while (++sizeIdx < ALL_SIZES.length) {
+			int size = ALL_SIZES[sizeIdx];
+			if (size <= numOfCards && (lastSize == 0 || size == lastSize)) {
+				combination = (1L << size) - 1;
+				return true;
+			}
+		}
+		combination = 0L;
+		return false;
+	}
+}
@@ -0,0 +1,151 @@
+
+/**
+ * This class models the result of checking a move against the rules of the Big Two game. A move is either legal,
+ * legal and ending the game, or illegal for a reason. A legal move carries the hand being played, which is null
+ * when the player passes.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class MoveResult {
+
+	/**
+	 * The outcome of a move.
+	 */
+	public enum Status {
+		/**
+		 * The move can be made and the game goes on.
+		 */
+		LEGAL,
+		/**
+		 * The move can be made and the player runs out of cards with it.
+		 */
+		GAME_OVER,
+		/**
+		 * The move cannot be made, the reason tells why.
+		 */
+		ILLEGAL
+	}
+
+	/**
+	 * The reason why a move is illegal.
+	 */
+	public enum Reason {
+		/**
+		 * The move is legal.
+		 */
+		NONE,
+		/**
+		 * The move is made by a player other than the current player.
+		 */
+		NOT_YOUR_TURN,
+		/**
+		 * The player tries to pass while leading, i.e. on the first move or when everybody else has passed.
+		 */
+		CANNOT_PASS,
+		/**
+		 * An index does not refer to a card in the player's hand.
+		 */
+		INVALID_INDEX,
+		/**
+		 * The selected cards do not compose a valid hand.
+		 */
+		NOT_A_HAND,
+		/**
+		 * The first hand of a game does not contain the 3 of Diamond.
+		 */
+		MISSING_THREE_OF_DIAMOND,
+		/**
+		 * The hand does not beat the last hand on the table.
+		 */
+		DOES_NOT_BEAT
+	}
+
+	private final Status status; // The outcome of the move
+	private final Reason reason; // Why the move is illegal, NONE if it is legal
+	private final int playerID; // The player who makes the move
+	private final Hand hand; // The hand being played, null for a pass or when no hand can be composed
+
+	/**
+	 * Constructor of MoveResult class. Results are created by BigTwoRules.
+	 *
+	 * @param status
+	 * 				The outcome of the move.
+	 *
+	 * @param reason
+	 * 				Why the move is illegal, NONE if it is legal.
+	 *
+	 * @param playerID
+	 * 				The player who makes the move.
+	 *
+	 * @param hand
+	 * 				The hand being played, null for a pass or when no hand can be composed.
+	 */
+	MoveResult(Status status, Reason reason, int playerID, Hand hand) {
+		this.status = status;
+		this.reason = reason;
+		this.playerID = playerID;
+		this.hand = hand;
+	}
+
+	/**
+	 * Getter of the outcome of the move.
+	 *
+	 * @return
+	 * 			The status of the move.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Getter of the reason why the move is illegal.
+	 *
+	 * @return
+	 * 			The reason, NONE if the move is legal.
+	 */
+	public Reason getReason() {
+		return reason;
+	}
+
+	/**
+	 * Getter of the player who makes the move.
+	 *
+	 * @return
+	 * 			The playerID of the move.
+	 */
+	public int getPlayerID() {
+		return playerID;
+	}
+
+	/**
+	 * Getter of the hand being played. For a move which does not beat the last hand, this is the hand which
+	 * was tried.
+	 *
+	 * @return
+	 * 			The hand, or null for a pass or when the cards do not compose a hand.
+	 */
+	public Hand getHand() {
+		return hand;
+	}
+
+	/**
+	 * Method to judge whether the move can be made.
+	 *
+	 * @return
+	 * 			True if the status is LEGAL or GAME_OVER, and vice versa.
+	 */
+	public boolean isLegal() {
+		return status != Status.ILLEGAL;
+	}
+
+	/**
+	 * Method to judge whether the move is a pass.
+	 *
+	 * @return
+	 * 			True if the move is legal and no hand is played, and vice versa.
+	 */
+	public boolean isPass() {
+		return status != Status.ILLEGAL && hand == null;
+	}
+}
@@ -0,0 +1,425 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class carries the connections of a CardGameServer over non-blocking channels. A small fixed number of I/O
+ * threads each run a Selector and multiplex the connections assigned to them, so the number of threads does not
+ * grow with the number of clients. The messages use the framed protocol of MessageFrames.
+ * <p>
+ * A message is read and handed to the server on the I/O thread of its connection. A message sent to a client is
+ * written at once as far as the socket takes it, and the rest is written by the I/O thread when the socket is
+ * ready again, so sending never blocks the sender. The messages waiting are written together by a gathering
+ * write, one system call for a batch of frames. Meanwhile the messages wait in a bounded OutboundQueue, not
+ * yet encoded, so the policy for slow clients can still drop or coalesce them. They are encoded by the codec in
+ * which the client last wrote, so a client sending binary frames gets binary frames back, and a message sent to
+ * several clients is encoded once per codec and its bytes shared (see OutboundMessage).
+ *
+ * @author Li Gengyu
+ *
+ */
+public class NioServer {
+
+	private static final int INITIAL_BUFFER_SIZE = 4096; // The initial size of the inbound buffer of a connection
+	private static final int MAX_FRAMES_PER_WRITE = 16; // The largest number of frames in one gathering write
+
+	private final CardGameServer server; // The server receiving the connections and messages
+	private final IoLoop[] loops; // The I/O threads
+	private int nextLoop = 0; // The index of the I/O thread to which the next connection is assigned
+
+	/**
+	 * Constructor of NioServer class.
+	 *
+	 * @param server
+	 * 				The server receiving the connections and messages.
+	 *
+	 * @param numOfThreads
+	 * 				The number of I/O threads.
+	 *
+	 * @throws IOException
+	 * 				If a Selector cannot be opened.
+	 */
+	public NioServer(CardGameServer server, int numOfThreads) throws IOException {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("At least one I/O thread is needed");
+		}
+		this.server = server;
+		this.loops = new IoLoop[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			loops[i] = new IoLoop();
+		}
+	}
+
+	/**
+	 * Method to start the I/O threads.
+	 */
+	public void start() {
+		for (int i = 0; i < loops.length; i++) {
+			Thread t = new Thread(loops[i], "NioServer-IO-" + i);
+			t.start();
+		}
+	}
+
+	/**
+	 * Method to hand a newly accepted channel to one of the I/O threads, in turn. The server is told about the
+	 * connection by that thread once the channel is registered.
+	 *
+	 * @param channel
+	 * 				The channel of the new client.
+	 *
+	 * @throws IOException
+	 * 				If the channel cannot be made non-blocking.
+	 */
+	public void accept(SocketChannel channel) throws IOException {
+		channel.configureBlocking(false);
+		IoLoop loop = loops[nextLoop];
+		nextLoop = (nextLoop + 1) % loops.length;
+		loop.register(channel);
+	}
+
+	/**
+	 * This class is one I/O thread, running a Selector over the connections assigned to it.
+	 *
+	 * @author Li Gengyu
+	 *
+	 */
+	private class IoLoop implements Runnable {
+
+		private final Selector selector; // The selector of the connections of this thread
+		// The tasks handed over by other threads
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+		// The connections to be closed later, the earliest first
+		private final PriorityQueue<NioConnection> closing = new PriorityQueue<NioConnection>(11,
+				new Comparator<NioConnection>() {
+					public int compare(NioConnection a, NioConnection b) {
+						return Long.compare(a.closeAt, b.closeAt);
+					}
+				});
+
+		/**
+		 * Constructor of IoLoop class.
+		 *
+		 * @throws IOException
+		 * 				If the Selector cannot be opened.
+		 */
+		IoLoop() throws IOException {
+			selector = Selector.open();
+		}
+
+		/**
+		 * Method to run a task on this thread, waking it up if it is waiting in select.
+		 *
+		 * @param task
+		 * 				The task to be run.
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		/**
+		 * Method to register a channel with this thread.
+		 *
+		 * @param channel
+		 * 				The channel of the new client.
+		 */
+		void register(final SocketChannel channel) {
+			execute(new Runnable() {
+				public void run() {
+					try {
+						NioConnection connection = new NioConnection(channel, IoLoop.this);
+						connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+						server.connectionOpened();
+						server.addConnection(connection);
+					} catch (IOException ex) {
+						ex.printStackTrace();
+						try {
+							channel.close();
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}
+				}
+			});
+		}
+
+		/**
+		 * The loop of the I/O thread: runs the tasks handed over, waits for channels to be ready, reads and
+		 * writes them and closes the connections whose time has come. An unchecked exception from a task or a
+		 * connection is logged and only closes that connection, as the thread serves all the others too.
+		 *
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			while (true) {
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					try {
+						task.run();
+					} catch (RuntimeException ex) {
+						ex.printStackTrace();
+					}
+				}
+				try {
+					long timeout = 0;
+					if (!closing.isEmpty()) {
+						timeout = Math.max(1, (closing.peek().closeAt - System.nanoTime()) / 1000000L);
+					}
+					selector.select(timeout);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+					return;
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					NioConnection connection = (NioConnection) key.attachment();
+					try {
+						if (key.isValid() && key.isReadable()) {
+							connection.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.write();
+						}
+					} catch (RuntimeException ex) {
+						server.println("Error in serving the client at " + connection.getRemoteSocketAddress());
+						ex.printStackTrace();
+						connection.close();
+					}
+				}
+				long now = System.nanoTime();
+				while (!closing.isEmpty() && closing.peek().closeAt - now <= 0) {
+					closing.poll().close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class is a connection to one client over a non-blocking channel. Its channel is read only by its I/O
+	 * thread, while messages may be sent to it by any thread.
+	 *
+	 * @author Li Gengyu
+	 *
+	 */
+	private class NioConnection implements ClientConnection {
+
+		private final SocketChannel channel; // The channel to the client
+		private final IoLoop loop; // The I/O thread of this connection
+		private final SocketAddress remoteAddress; // The address of the client
+		private final OutboundQueue outbound; // The messages waiting to be written
+		private final Object writeLock = new Object(); // The lock of the writing to the channel
+		// The frames being written, shared with other connections, guarded by writeLock
+		private final ByteBuffer[] frames = new ByteBuffer[MAX_FRAMES_PER_WRITE];
+		private int numOfFrames = 0; // The number of frames being written, guarded by writeLock
+		private boolean waitingForSocket = false; // Whether the I/O thread writes when the socket is ready
+		private volatile boolean binary = false; // Whether the client writes frames by BinaryMessageCodec
+		private final AtomicBoolean closed = new AtomicBoolean(false); // Whether the connection has been closed
+		private ByteBuffer inbound = ByteBuffer.allocate(INITIAL_BUFFER_SIZE); // The bytes not yet decoded
+		private SelectionKey key; // The key of the channel in the selector of the I/O thread
+		private long closeAt; // The time at which the connection is to be closed, if closeLater was called
+
+		/**
+		 * Constructor of NioConnection class.
+		 *
+		 * @param channel
+		 * 				The channel to the client.
+		 *
+		 * @param loop
+		 * 				The I/O thread of the connection.
+		 *
+		 * @throws IOException
+		 * 				If the address of the client cannot be read.
+		 */
+		NioConnection(SocketChannel channel, IoLoop loop) throws IOException {
+			this.channel = channel;
+			this.loop = loop;
+			this.remoteAddress = channel.getRemoteAddress();
+			this.outbound = server.newOutboundQueue();
+		}
+
+		@Override
+		public void send(OutboundMessage message) throws IOException {
+			if (closed.get()) {
+				throw new IOException("Connection to " + remoteAddress + " is closed");
+			}
+			if (!outbound.offer(message)) {
+				server.println("The client at " + remoteAddress + " is too slow and is disconnected");
+				close();
+				return;
+			}
+			boolean pending;
+			synchronized (writeLock) {
+				if (waitingForSocket) {
+					return; // the I/O thread writes the message when the socket is ready again
+				}
+				try {
+					flushOutbound();
+				} catch (IOException ex) {
+					close();
+					throw ex;
+				}
+				pending = waitingForSocket = (numOfFrames > 0);
+			}
+			if (pending) {
+				// the socket is full, so the I/O thread writes the rest when it is ready again
+				loop.execute(new Runnable() {
+					public void run() {
+						if (key.isValid()) {
+							key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+						}
+					}
+				});
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			loop.execute(new Runnable() {
+				public void run() {
+					key.cancel();
+					try {
+						channel.close();
+					} catch (IOException ex) {
+						ex.printStackTrace();
+					}
+					server.removeConnection(NioConnection.this);
+					server.connectionClosed();
+				}
+			});
+		}
+
+		@Override
+		public void closeLater(final long delayMillis) {
+			loop.execute(new Runnable() {
+				public void run() {
+					closeAt = System.nanoTime() + delayMillis * 1000000L;
+					loop.closing.add(NioConnection.this);
+				}
+			});
+		}
+
+		@Override
+		public SocketAddress getRemoteSocketAddress() {
+			return remoteAddress;
+		}
+
+		@Override
+		public int getQueueDepth() {
+			return outbound.size();
+		}
+
+		@Override
+		public int getNumOfDroppedMessages() {
+			return outbound.getNumOfDropped();
+		}
+
+		/**
+		 * Method to read the bytes available on the channel and hand every complete frame to the server, called
+		 * by the I/O thread when the channel is readable.
+		 */
+		void read() {
+			try {
+				if (channel.read(inbound) < 0) {
+					close();
+					return;
+				}
+				inbound.flip();
+				int needed = 0;
+				while (inbound.remaining() >= MessageFrames.HEADER_SIZE) {
+					int length = MessageFrames.peekLength(inbound);
+					if (inbound.remaining() < MessageFrames.HEADER_SIZE + length) {
+						needed = MessageFrames.HEADER_SIZE + length;
+						break;
+					}
+					inbound.position(inbound.position() + MessageFrames.HEADER_SIZE);
+					ByteBuffer payload = inbound.slice();
+					payload.limit(length);
+					inbound.position(inbound.position() + length);
+					binary = MessageFrames.isBinary(payload);
+					server.receiveMessage(this, MessageFrames.decode(payload));
+				}
+				inbound.compact();
+				if (needed > inbound.capacity()) {
+					ByteBuffer bigger = ByteBuffer.allocate(needed);
+					inbound.flip();
+					bigger.put(inbound);
+					inbound = bigger;
+				}
+			} catch (IOException ex) {
+				server.println("Error in receiving messages from the client at " + remoteAddress);
+				ex.printStackTrace();
+				close();
+			}
+		}
+
+		/**
+		 * Method to write the messages waiting for the channel, called by the I/O thread when the channel is
+		 * writable.
+		 */
+		void write() {
+			synchronized (writeLock) {
+				try {
+					flushOutbound();
+				} catch (IOException ex) {
+					close();
+					return;
+				}
+				if (numOfFrames == 0) {
+					waitingForSocket = false;
+					if (key.isValid()) {
+						key.interestOps(SelectionKey.OP_READ);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Method to encode and write as many waiting messages as the channel takes without blocking, a batch of
+		 * frames at a time. The caller must hold writeLock.
+		 *
+		 * @throws IOException
+		 * 				If a message cannot be encoded or the channel cannot be written.
+		 */
+		private void flushOutbound() throws IOException {
+			while (true) {
+				while (numOfFrames < frames.length) {
+					OutboundMessage message = outbound.poll();
+					if (message == null) {
+						break;
+					}
+					frames[numOfFrames++] = message.getFrame(binary);
+				}
+				if (numOfFrames == 0) {
+					return;
+				}
+				channel.write(frames, 0, numOfFrames);
+				int written = 0;
+				while (written < numOfFrames && !frames[written].hasRemaining()) {
+					written++;
+				}
+				// keeps the frames not fully written at the front
+				System.arraycopy(frames, written, frames, 0, numOfFrames - written);
+				Arrays.fill(frames, numOfFrames - written, numOfFrames, null);
+				numOfFrames -= written;
+				if (numOfFrames > 0) {
+					return;
+				}
+			}
+		}
+	}
+}
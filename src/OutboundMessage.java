@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a message on its way to one or more clients, together with its encoded frames. A broadcast wraps
+ * its message once and queues the same OutboundMessage on every connection, so the message is encoded at most
+ * once per codec however many clients get it: the first connection to write it encodes the frame, and the others
+ * write the same bytes through read-only buffers of their own.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class OutboundMessage {
+
+	private final CardGameMessage message; // The message, which must not be changed any more
+	private ByteBuffer serializedFrame; // The serialized frame, encoded when first needed
+	private ByteBuffer binaryFrame; // The frame encoded by BinaryMessageCodec, encoded when first needed
+
+	/**
+	 * Constructor of OutboundMessage class.
+	 *
+	 * @param message
+	 * 				The message to be sent, which must not be changed afterwards.
+	 */
+	public OutboundMessage(CardGameMessage message) {
+		this.message = message;
+	}
+
+	/**
+	 * Getter of the message.
+	 *
+	 * @return
+	 * 			The message to be sent.
+	 */
+	public CardGameMessage getMessage() {
+		return message;
+	}
+
+	/**
+	 * Method to get the frame of the message in a codec, encoding it on the first call for that codec.
+	 *
+	 * @param binary
+	 * 				True for the frame encoded by BinaryMessageCodec, or false for the serialized frame.
+	 *
+	 * @return
+	 * 			A read-only buffer over the shared bytes of the frame, with a position of its own.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be encoded.
+	 */
+	public synchronized ByteBuffer getFrame(boolean binary) throws IOException {
+		ByteBuffer frame = binary ? binaryFrame : serializedFrame;
+		if (frame == null) {
+			frame = MessageFrames.encode(message, binary).asReadOnlyBuffer();
+			if (binary) {
+				binaryFrame = frame;
+			} else {
+				serializedFrame = frame;
+			}
+		}
+		return frame.duplicate();
+	}
+}
@@ -0,0 +1,173 @@
+import java.util.ArrayDeque;
+
+/**
+ * This class is a bounded queue of the messages waiting to be written to one client. While the client keeps up,
+ * every message is queued. Once the queue holds a threshold of messages the client is considered slow and the
+ * policy of the queue applies: chat messages are dropped, chat messages are coalesced into the last one waiting,
+ * or the client is disconnected. Game messages are never dropped, so a queue which reaches its capacity asks for
+ * the client to be disconnected whatever the policy.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class OutboundQueue {
+
+	/**
+	 * The number of messages waiting above which a client is slow, unless configured otherwise.
+	 */
+	public static final int DEFAULT_THRESHOLD = 256;
+
+	/**
+	 * The ratio of the capacity of a queue to its threshold.
+	 */
+	public static final int CAPACITY_FACTOR = 4;
+
+	/**
+	 * The longest chat message made by coalescing, so that it still fits a frame even when every character takes
+	 * three bytes.
+	 */
+	public static final int MAX_COALESCED_LENGTH = MessageFrames.MAX_FRAME_SIZE / 4;
+
+	/**
+	 * An enum for what is done with a client which does not read its messages fast enough.
+	 */
+	public enum Policy {
+		/**
+		 * New chat messages are dropped while the queue is above the threshold.
+		 */
+		DROP_CHAT,
+		/**
+		 * New chat messages are appended to the last chat message waiting while the queue is above the threshold.
+		 */
+		COALESCE,
+		/**
+		 * The client is disconnected as soon as the queue reaches the threshold.
+		 */
+		DISCONNECT;
+
+		/**
+		 * Method to find a policy by its name on the command line.
+		 *
+		 * @param name
+		 * 				"drop-chat", "coalesce" or "disconnect".
+		 *
+		 * @return
+		 * 			The policy of that name.
+		 */
+		public static Policy fromName(String name) {
+			return valueOf(name.toUpperCase().replace('-', '_'));
+		}
+	}
+
+	private final ArrayDeque<OutboundMessage> messages = new ArrayDeque<OutboundMessage>(); // The messages waiting
+	private final Policy policy; // What is done when the client is slow
+	private final int threshold; // The number of messages waiting above which the client is slow
+	private final int capacity; // The number of messages waiting at which the client is disconnected
+	private int numOfDropped = 0; // The number of chat messages dropped or coalesced
+
+	/**
+	 * Constructor of OutboundQueue class.
+	 *
+	 * @param policy
+	 * 				What is done when the client is slow.
+	 *
+	 * @param threshold
+	 * 				The number of messages waiting above which the client is slow, at least 1.
+	 *
+	 * @throws IllegalArgumentException
+	 * 				If the threshold is less than 1.
+	 */
+	public OutboundQueue(Policy policy, int threshold) {
+		checkThreshold(threshold);
+		this.policy = policy;
+		this.threshold = threshold;
+		this.capacity = threshold * CAPACITY_FACTOR;
+	}
+
+	/**
+	 * Method to check the threshold of a queue. A queue needs room for one message at least, or every message
+	 * would find the client slow.
+	 *
+	 * @param threshold
+	 * 				The number of messages waiting above which the client is slow.
+	 *
+	 * @throws IllegalArgumentException
+	 * 				If the threshold is less than 1.
+	 */
+	public static void checkThreshold(int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("The threshold of an outbound queue must be at least 1: " + threshold);
+		}
+	}
+
+	/**
+	 * Method to queue a message, applying the policy if the client is slow.
+	 *
+	 * @param message
+	 * 				The message to be written to the client.
+	 *
+	 * @return
+	 * 			True if the message has been queued, dropped or coalesced, or false if the client should be
+	 * 			disconnected.
+	 */
+	public synchronized boolean offer(OutboundMessage message) {
+		if (messages.size() >= threshold) {
+			if (policy == Policy.DISCONNECT) {
+				return false;
+			}
+			if (message.getMessage().getType() == CardGameMessage.MSG) {
+				CardGameMessage last = messages.peekLast().getMessage();
+				if (policy == Policy.DROP_CHAT) {
+					numOfDropped++;
+					return true;
+				} else if (last.getType() == CardGameMessage.MSG) {
+					String text = last.getData() + "\n" + message.getMessage().getData();
+					if (text.length() <= MAX_COALESCED_LENGTH) {
+						// the queued message has not been written, so it can be replaced by a message of this
+						// queue alone
+						messages.pollLast();
+						messages.add(new OutboundMessage(new CardGameMessage(CardGameMessage.MSG, last.getPlayerID(),
+								text)));
+						numOfDropped++;
+						return true;
+					}
+				}
+			}
+			if (messages.size() >= capacity) {
+				return false;
+			}
+		}
+		messages.add(message);
+		return true;
+	}
+
+	/**
+	 * Method to take the next message to be written.
+	 *
+	 * @return
+	 * 			The oldest message waiting, or null if there is none.
+	 */
+	public synchronized OutboundMessage poll() {
+		return messages.poll();
+	}
+
+	/**
+	 * Getter of the depth of the queue.
+	 *
+	 * @return
+	 * 			The number of messages waiting.
+	 */
+	public synchronized int size() {
+		return messages.size();
+	}
+
+	/**
+	 * Getter of the number of chat messages which the client did not get on their own.
+	 *
+	 * @return
+	 * 			The number of chat messages dropped or coalesced.
+	 */
+	public synchronized int getNumOfDropped() {
+		return numOfDropped;
+	}
+}
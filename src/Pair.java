@@ -46,13 +46,13 @@ public class Pair extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "Pair";
+	public HandType getHandType() {
+		return HandType.PAIR;
 	}
 		
 }
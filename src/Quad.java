@@ -49,28 +49,6 @@ public class Quad extends Hand {
 		return null;
 	}
 
-	/**
-	 * Method to judge whether this hand beats that hand. Override because Quad > FullHouse > Flush > Straight
-	 * 
-	 * @param hand
-	 * 				Another hand for comparing.
-	 * 
-	 * @return
-	 * 			A boolean value to indicate whether this hand beats that hand or not, true if beats,
-	 *          and vice versa.
-	 */
-	@Override
-	public boolean beats(Hand hand) {
-		if (hand.getType() == "Straight" || hand.getType() == "Flush" || hand.getType() == "FullHouse") {
-			return true;
-		} else if (hand.getType() == "Quad") {
-			if (getTopCard().compareTo(hand.getTopCard()) == 1) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Judge the Quad hand is valid or not.
 	 * 
@@ -100,13 +78,13 @@ public class Quad extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "Quad";
+	public HandType getHandType() {
+		return HandType.QUAD;
 	}
 	
 	
@@ -0,0 +1,88 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * This class runs tasks one at a time, in the order in which they are submitted, on the threads of a shared
+ * executor. The state touched only by the tasks of one SerialExecutor is thereby confined to it and needs no
+ * lock, while many SerialExecutors share a few threads. A SerialExecutor holds no thread while it has no task,
+ * and gives its thread back after a batch of tasks so that a busy one cannot keep the others waiting.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class SerialExecutor implements Executor {
+
+	private static final int BATCH_SIZE = 64; // The number of tasks run before the thread is given back
+
+	private final Executor executor; // The shared executor running the tasks
+	private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>(); // The tasks waiting to be run
+	private boolean scheduled = false; // Whether a batch has been submitted to the shared executor and not finished
+	// The task running a batch on the shared executor
+	private final Runnable batch = new Runnable() {
+		public void run() {
+			runBatch();
+		}
+	};
+
+	/**
+	 * Constructor of SerialExecutor class.
+	 *
+	 * @param executor
+	 * 				The shared executor running the tasks.
+	 */
+	public SerialExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Method to submit a task, which runs after all the tasks submitted before it.
+	 *
+	 * @param task
+	 * 				The task to be run.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		synchronized (tasks) {
+			tasks.add(task);
+			if (scheduled) {
+				return;
+			}
+			scheduled = true;
+		}
+		executor.execute(batch);
+	}
+
+	/**
+	 * Getter of the number of tasks waiting to be run.
+	 *
+	 * @return
+	 * 			The number of tasks waiting.
+	 */
+	public int getNumOfPendingTasks() {
+		synchronized (tasks) {
+			return tasks.size();
+		}
+	}
+
+	/**
+	 * Method to run a batch of tasks, and to submit the next batch if there are tasks left.
+	 */
+	private void runBatch() {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Runnable task;
+			synchronized (tasks) {
+				task = tasks.poll();
+				if (task == null) {
+					scheduled = false;
+					return;
+				}
+			}
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				ex.printStackTrace();
+			}
+		}
+		executor.execute(batch);
+	}
+}
@@ -0,0 +1,220 @@
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * This class writes the messages of the original protocol to one ObjectOutputStream, and resets the stream on a
+ * budget. An ObjectOutputStream keeps every object it has written in its handle table, so that an object written
+ * again is sent as a reference to the first copy: without a reset the table holds on to every message ever sent,
+ * growing without bound, and a changed object sent again arrives unchanged. A SerializationChannel resets the
+ * stream once a number of messages or of bytes has been written since the last reset, which empties the table at
+ * the cost of sending the class descriptors again, and counts the objects in the table so its growth can be
+ * watched.
+ * <p>
+ * The bytes are buffered and only sent by flush, so that the writer can send a batch of messages in one write
+ * rather than in the many small writes of an ObjectOutputStream.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class SerializationChannel {
+
+	/**
+	 * The number of messages written between two resets, unless configured otherwise.
+	 */
+	public static final int DEFAULT_MESSAGE_BUDGET = 64;
+
+	/**
+	 * The number of bytes written between two resets, unless configured otherwise.
+	 */
+	public static final long DEFAULT_BYTE_BUDGET = 1 << 16;
+
+	private static final int BUFFER_SIZE = 8192; // The size of the buffer of the bytes not yet sent
+
+	private final CountingStream counter; // The stream counting the bytes written
+	private final CountingObjectStream oostream; // The ObjectOutputStream writing the messages
+	private final int messageBudget; // The number of messages written between two resets, 0 for no limit
+	private final long byteBudget; // The number of bytes written between two resets, 0 for no limit
+	private int messagesSinceReset = 0; // The number of messages written since the last reset
+	private long bytesAtReset = 0; // The number of bytes written before the last reset
+	private int maxHandleTableSize = 0; // The largest number of objects held by the handle table
+	private int numOfResets = 0; // The number of resets
+
+	/**
+	 * Constructor of SerializationChannel class, with the default budgets.
+	 *
+	 * @param out
+	 * 				The stream to the peer.
+	 *
+	 * @throws IOException
+	 * 				If the header of the stream cannot be sent.
+	 */
+	public SerializationChannel(OutputStream out) throws IOException {
+		this(out, DEFAULT_MESSAGE_BUDGET, DEFAULT_BYTE_BUDGET);
+	}
+
+	/**
+	 * Constructor of SerializationChannel class.
+	 *
+	 * @param out
+	 * 				The stream to the peer.
+	 *
+	 * @param messageBudget
+	 * 				The number of messages written between two resets, or 0 for no limit.
+	 *
+	 * @param byteBudget
+	 * 				The number of bytes written between two resets, or 0 for no limit.
+	 *
+	 * @throws IOException
+	 * 				If the header of the stream cannot be sent.
+	 */
+	public SerializationChannel(OutputStream out, int messageBudget, long byteBudget) throws IOException {
+		this.counter = new CountingStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		this.oostream = new CountingObjectStream(counter);
+		this.messageBudget = messageBudget;
+		this.byteBudget = byteBudget;
+		// the peer waits for the header before it reads anything
+		oostream.flush();
+	}
+
+	/**
+	 * Method to write a message, resetting the stream first if the budget since the last reset is spent. The
+	 * message is sent by the next flush, or earlier if the buffer fills up.
+	 *
+	 * @param message
+	 * 				The message to be written.
+	 *
+	 * @throws IOException
+	 * 				If the message cannot be written.
+	 */
+	public synchronized void writeObject(Object message) throws IOException {
+		if ((messageBudget > 0 && messagesSinceReset >= messageBudget)
+				|| (byteBudget > 0 && counter.count - bytesAtReset >= byteBudget)) {
+			oostream.reset();
+			oostream.handles = 0;
+			messagesSinceReset = 0;
+			bytesAtReset = counter.count;
+			numOfResets++;
+		}
+		oostream.writeObject(message);
+		messagesSinceReset++;
+		maxHandleTableSize = Math.max(maxHandleTableSize, oostream.handles);
+	}
+
+	/**
+	 * Method to send the messages written so far.
+	 *
+	 * @throws IOException
+	 * 				If the messages cannot be sent.
+	 */
+	public synchronized void flush() throws IOException {
+		oostream.flush();
+	}
+
+	/**
+	 * Getter of the number of objects held by the handle table of the stream.
+	 *
+	 * @return
+	 * 			The number of objects written since the last reset.
+	 */
+	public synchronized int getHandleTableSize() {
+		return oostream.handles;
+	}
+
+	/**
+	 * Getter of the largest number of objects the handle table has held.
+	 *
+	 * @return
+	 * 			The largest number of objects written between two resets.
+	 */
+	public synchronized int getMaxHandleTableSize() {
+		return maxHandleTableSize;
+	}
+
+	/**
+	 * Getter of the number of resets.
+	 *
+	 * @return
+	 * 			The number of times the stream has been reset.
+	 */
+	public synchronized int getNumOfResets() {
+		return numOfResets;
+	}
+
+	/**
+	 * Getter of the number of bytes written.
+	 *
+	 * @return
+	 * 			The number of bytes written to the peer, the header of the stream included.
+	 */
+	public synchronized long getBytesWritten() {
+		return counter.count;
+	}
+
+	/**
+	 * This class is an ObjectOutputStream counting the objects it adds to its handle table. An object is only
+	 * offered for replacement when it is not in the table yet, so every call to replaceObject adds one entry.
+	 *
+	 * @author Li Gengyu
+	 *
+	 */
+	private static class CountingObjectStream extends ObjectOutputStream {
+
+		private int handles = 0; // The number of objects added to the handle table since the last reset
+
+		/**
+		 * Constructor of CountingObjectStream class.
+		 *
+		 * @param out
+		 * 				The stream to the peer.
+		 *
+		 * @throws IOException
+		 * 				If the header of the stream cannot be written.
+		 */
+		CountingObjectStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) {
+			handles++;
+			return obj;
+		}
+	}
+
+	/**
+	 * This class is a stream counting the bytes written through it.
+	 *
+	 * @author Li Gengyu
+	 *
+	 */
+	private static class CountingStream extends FilterOutputStream {
+
+		private long count = 0; // The number of bytes written
+
+		/**
+		 * Constructor of CountingStream class.
+		 *
+		 * @param out
+		 * 				The stream to the peer.
+		 */
+		CountingStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+
+/**
+ * This class collects the statistics of a batch of simulated Big Two games. Each worker of the simulator fills
+ * its own object, and the objects are merged when the workers finish, so no statistics are shared between
+ * threads while the games are played.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class SimulationStats {
+
+	private long games; // The number of games played
+	private long moves; // The number of hands played, passes excluded
+	private long passes; // The number of passes
+	private final long[] wins = new long[BigTwoState.NUM_OF_PLAYERS]; // The number of wins of each seat
+	private final long[] cardsLeft = new long[BigTwoState.NUM_OF_PLAYERS]; // The cards left to each seat, summed
+	private long elapsedNanos; // The wall clock time of the whole run
+
+	/**
+	 * Method to record a finished game.
+	 *
+	 * @param state
+	 * 				The state of the game at its end.
+	 *
+	 * @param movesInGame
+	 * 				The number of hands played in the game.
+	 *
+	 * @param passesInGame
+	 * 				The number of passes in the game.
+	 */
+	public void record(BigTwoState state, int movesInGame, int passesInGame) {
+		games++;
+		moves += movesInGame;
+		passes += passesInGame;
+		int winner = state.getWinner();
+		if (winner >= 0) {
+			wins[winner]++;
+		}
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			cardsLeft[i] += state.getPlayerList().get(i).getNumOfCards();
+		}
+	}
+
+	/**
+	 * Method to add the statistics of another batch to this one.
+	 *
+	 * @param other
+	 * 				The statistics to be added.
+	 *
+	 * @return
+	 * 			This object.
+	 */
+	public SimulationStats merge(SimulationStats other) {
+		games += other.games;
+		moves += other.moves;
+		passes += other.passes;
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			wins[i] += other.wins[i];
+			cardsLeft[i] += other.cardsLeft[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Setter of the wall clock time of the run, set by the simulator when all the games are over.
+	 *
+	 * @param elapsedNanos
+	 * 				The time taken by the run in nanoseconds.
+	 */
+	public void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Getter of the number of games played.
+	 *
+	 * @return
+	 * 			The number of games.
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Getter of the number of wins of a seat.
+	 *
+	 * @param seat
+	 * 				The index of the player.
+	 *
+	 * @return
+	 * 			The number of games won by the seat.
+	 */
+	public long getWins(int seat) {
+		return wins[seat];
+	}
+
+	/**
+	 * Getter of the throughput of the run.
+	 *
+	 * @return
+	 * 			The number of games played per second.
+	 */
+	public double getGamesPerSecond() {
+		if (elapsedNanos <= 0) {
+			return 0.0;
+		}
+		return games * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns a report of the statistics, one line for the throughput and one for each seat.
+	 *
+	 * @return
+	 * 			A string report of the statistics.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d games in %.3f s: %.1f games/s, %.1f hands and %.1f passes per game%n",
+				games, elapsedNanos / 1e9, getGamesPerSecond(), perGame(moves), perGame(passes)));
+		for (int i = 0; i < BigTwoState.NUM_OF_PLAYERS; i++) {
+			report.append(String.format("Player %d: %d wins (%.2f%%), %.2f cards left per game%n",
+					i, wins[i], 100.0 * perGame(wins[i]), perGame(cardsLeft[i])));
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Method to average a total over the games.
+	 *
+	 * @param total
+	 * 				The total to be averaged.
+	 *
+	 * @return
+	 * 			The total divided by the number of games, or 0 if no game was played.
+	 */
+	private double perGame(long total) {
+		return games == 0 ? 0.0 : (double) total / games;
+	}
+}
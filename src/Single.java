@@ -45,12 +45,12 @@ public class Single extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "Single";
+	public HandType getHandType() {
+		return HandType.SINGLE;
 	}
 }
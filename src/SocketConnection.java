@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is used to model a connection to a client over a blocking
+ * socket, using the original protocol in which each side writes all its
+ * messages to a single ObjectOutputStream, reset on the budget of the server
+ * by a SerializationChannel. The messages are queued in a
+ * bounded OutboundQueue and written in order by a writer task of the
+ * connection, so the sender never waits for the socket. The writer flushes
+ * once it has written all the messages waiting, so a batch of messages is
+ * sent in one write.
+ *
+ * @author Li Gengyu
+ *
+ */
+public class SocketConnection implements ClientConnection {
+	private final CardGameServer server; // server owning the connection
+	private final Socket clientSocket; // socket connection to the client
+	private final SerializationChannel channel; // ObjectOutputStream of the client
+	private final AtomicBoolean closed = new AtomicBoolean(false); // whether the socket has been closed
+	private final OutboundQueue outbound; // messages waiting to be written to the client
+	private final AtomicBoolean writing = new AtomicBoolean(false); // whether the writer task is running
+	private final Executor writerExecutor; // executor running the writer task
+	// writer task, writing the messages waiting until there is none
+	private final Runnable writer = new Runnable() {
+		public void run() {
+			writeOutbound();
+		}
+	};
+
+	/**
+	 * Creates and returns an instance of the SocketConnection class.
+	 *
+	 * @param server
+	 *            the server owning the connection
+	 * @param clientSocket
+	 *            the socket connection to the client
+	 * @throws IOException
+	 *             if the SerializationChannel cannot be created
+	 */
+	public SocketConnection(CardGameServer server, Socket clientSocket) throws IOException {
+		this.server = server;
+		this.clientSocket = clientSocket;
+		this.channel = server.newSerializationChannel(clientSocket.getOutputStream());
+		this.outbound = server.newOutboundQueue();
+		this.writerExecutor = server.getHandlerExecutor();
+		server.connectionOpened();
+	}
+
+	/**
+	 * Creates an ObjectInputStream for receiving messages from the client. This
+	 * blocks until the client has sent the header of its stream.
+	 *
+	 * @return an ObjectInputStream chained to the InputStream of the socket
+	 * @throws IOException
+	 *             if the stream cannot be created
+	 */
+	public ObjectInputStream openInputStream() throws IOException {
+		return new ObjectInputStream(clientSocket.getInputStream());
+	}
+
+	@Override
+	public void send(OutboundMessage message) throws IOException {
+		if (closed.get()) {
+			throw new IOException("Connection to " + getRemoteSocketAddress() + " is closed");
+		}
+		if (!outbound.offer(message)) {
+			server.println("The client at " + getRemoteSocketAddress() + " is too slow and is disconnected");
+			// closes the socket, so that the handler removes the connection
+			close();
+			return;
+		}
+		if (writing.compareAndSet(false, true)) {
+			writerExecutor.execute(writer);
+		}
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return outbound.size();
+	}
+
+	@Override
+	public int getNumOfDroppedMessages() {
+		return outbound.getNumOfDropped();
+	}
+
+	/**
+	 * Returns the number of objects held by the handle table of the stream to
+	 * the client.
+	 *
+	 * @return the number of objects written since the last reset
+	 */
+	public int getHandleTableSize() {
+		return channel.getHandleTableSize();
+	}
+
+	/**
+	 * Writes the messages waiting until there is none, and sends them, in the
+	 * writer task.
+	 */
+	private void writeOutbound() {
+		while (true) {
+			OutboundMessage message = outbound.poll();
+			if (message == null) {
+				flush();
+				writing.set(false);
+				// a message queued just before the flag was cleared has no writer
+				if (outbound.size() == 0 || !writing.compareAndSet(false, true)) {
+					return;
+				}
+				continue;
+			}
+			if (closed.get()) {
+				continue;
+			}
+			try {
+				channel.writeObject(message.getMessage());
+			} catch (IOException ex) {
+				server.println("Error in sending a message to the client at " + getRemoteSocketAddress());
+				ex.printStackTrace();
+				// closes the socket, so that the handler removes the connection
+				close();
+			}
+		}
+	}
+
+	/**
+	 * Sends the messages written so far, in the writer task.
+	 */
+	private void flush() {
+		if (closed.get()) {
+			return;
+		}
+		try {
+			channel.flush();
+		} catch (IOException ex) {
+			server.println("Error in sending messages to the client at " + getRemoteSocketAddress());
+			ex.printStackTrace();
+			// closes the socket, so that the handler removes the connection
+			close();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		server.connectionClosed();
+		try {
+			clientSocket.close();
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	@Override
+	public void closeLater(long delayMillis) {
+		// schedules the closing rather than keeping a thread asleep until then
+		server.getScheduler().schedule(new Runnable() {
+			public void run() {
+				close();
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public SocketAddress getRemoteSocketAddress() {
+		return clientSocket.getRemoteSocketAddress();
+	}
+}
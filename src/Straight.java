@@ -50,12 +50,12 @@ public class Straight extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "Straight";
+	public HandType getHandType() {
+		return HandType.STRAIGHT;
 	}
 }
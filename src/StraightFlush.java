@@ -24,28 +24,6 @@ public class StraightFlush extends Hand {
 		super(player, cards);
 	}
 
-	/**
-	 * Method to judge whether this hand beats that hand. Override because FullHouse > Flush > Straight
-	 * 
-	 * @param hand
-	 * 				Another hand for comparing.
-	 * 
-	 * @return
-	 * 			A boolean value to indicate whether this hand beats that hand or not, true if beats,
-	 *          and vice versa.
-	 */
-	@Override
-	public boolean beats(Hand hand) {
-		if (hand.getType() == "Straight" || hand.getType() == "Flush" || hand.getType() == "FullHouse" || hand.getType() == "Quad") {
-			return true;
-		} else if (hand.getType() == "StraightFlush") {
-			if (getTopCard().compareTo(hand.getTopCard()) == 1) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Judge the StraightFlush hand is valid or not.
 	 * 
@@ -75,12 +53,12 @@ public class StraightFlush extends Hand {
 	 * Retrieve which type of hand it is.
 	 * 
 	 * @return
-	 * 			A String object of the class's name,
+	 * 			The HandType constant of the class.
 	 * 
-	 * @see Hand#getType()
+	 * @see Hand#getHandType()
 	 */
 	@Override
-	public String getType() {
-		return "StraightFlush";
+	public HandType getHandType() {
+		return HandType.STRAIGHT_FLUSH;
 	}
 }